@@ -0,0 +1,53 @@
+package cl.bci.common.datasource;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Solo se activa si se configura app.datasource.replica.url; sin replica la aplicacion usa
+ * el DataSource de spring.datasource tal como lo arma Spring Boot.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.url")
+public class DataSourceRoutingConfig {
+	
+	@Bean
+	DataSource primaryDataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().build();
+	}
+	
+	@Bean
+	DataSource replicaDataSource(
+			@Value("${app.datasource.replica.url}") String url,
+			@Value("${app.datasource.replica.username:${spring.datasource.username:}}") String username,
+			@Value("${app.datasource.replica.password:${spring.datasource.password:}}") String password) {
+		return DataSourceBuilder.create().url(url).username(username).password(password).build();
+	}
+	
+	@Bean
+	RecentWrites recentWrites(
+			@Value("${app.datasource.replica.read-your-writes:2s}") Duration window,
+			@Value("${app.datasource.replica.read-your-writes-max-entries:100000}") int maxEntries) {
+		return new RecentWrites(maxEntries, window);
+	}
+	
+	@Bean
+	@Primary
+	DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+			@Qualifier("replicaDataSource") DataSource replica, RecentWrites recentWrites) {
+		ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replica, recentWrites);
+		routing.afterPropertiesSet();
+		return new LazyConnectionDataSourceProxy(routing);
+	}
+}
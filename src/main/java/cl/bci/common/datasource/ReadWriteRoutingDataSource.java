@@ -0,0 +1,53 @@
+package cl.bci.common.datasource;
+
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Envia las transacciones @Transactional(readOnly = true) a la replica y todo lo demas al primario.
+ * La clave se resuelve al pedir la conexion, por eso debe ir detras de un LazyConnectionDataSourceProxy:
+ * asi la conexion se obtiene con la primera sentencia, cuando la transaccion ya marco si es de solo lectura.
+ * Una transaccion de solo lectura con nombre PRIMARY_READ va al primario (ej: cargas de cache).
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+	// lo leido se guarda en una cache: de una replica atrasada quedaria el valor anterior hasta el TTL
+	public static final String PRIMARY_READ = "primary-read";
+	
+	enum Route { PRIMARY, REPLICA }
+	
+	private final RecentWrites recentWrites;
+	
+	public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, RecentWrites recentWrites) {
+		this.recentWrites = recentWrites;
+		setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+		setDefaultTargetDataSource(primary);
+	}
+	
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+			return Route.PRIMARY;
+		}
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			if (PRIMARY_READ.equals(TransactionSynchronizationManager.getCurrentTransactionName())) {
+				return Route.PRIMARY;
+			}
+			// quien acaba de escribir lee del primario: la replica podria no tener aun su cambio
+			return recentWrites.currentUserWroteRecently() ? Route.PRIMARY : Route.REPLICA;
+		}
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					recentWrites.recordCurrentUser();
+				}
+			});
+		}
+		return Route.PRIMARY;
+	}
+}
@@ -0,0 +1,38 @@
+package cl.bci.common.datasource;
+
+import java.time.Duration;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import cl.bci.common.helper.ExpiringCache;
+
+/**
+ * Recuerda por unos segundos a quien acaba de escribir, para que sus propias lecturas
+ * vayan al primario mientras la replica se pone al dia (read-your-writes).
+ * Se identifica al autor por el usuario autenticado; sin autenticacion no se registra nada.
+ */
+public class RecentWrites {
+	private final ExpiringCache<String, Boolean> writers;
+	
+	public RecentWrites(int maxEntries, Duration window) {
+		this.writers = new ExpiringCache<>(maxEntries, window);
+	}
+	
+	public void recordCurrentUser() {
+		String user = currentUser();
+		if (user != null) {
+			writers.put(user, Boolean.TRUE);
+		}
+	}
+	
+	public boolean currentUserWroteRecently() {
+		String user = currentUser();
+		return user != null && writers.get(user) != null;
+	}
+	
+	private static String currentUser() {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		return authentication == null ? null : authentication.getName();
+	}
+}
@@ -0,0 +1,7 @@
+package cl.bci.common.dto;
+
+/**
+ * Respuesta junto a la version del recurso, el controlador la publica como ETag.
+ */
+public record Versioned<T>(T value, long version) {
+}
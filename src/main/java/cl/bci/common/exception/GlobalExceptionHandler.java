@@ -2,18 +2,22 @@ package cl.bci.common.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import cl.bci.common.dto.ErrorResponse;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler{
 	private static final Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+	private static final String RETRY_AFTER_SECONDS = "1";
 	
 	@ExceptionHandler(DatabaseException.class)
 	public ResponseEntity<ErrorResponse> handleDatabaseException(DatabaseException ex) {
@@ -32,12 +36,31 @@ public class GlobalExceptionHandler{
 	}
 	
 	
+	@ExceptionHandler(CredencialesInvalidasException.class)
+	public ResponseEntity<ErrorResponse> handleCredencialesInvalidas(CredencialesInvalidasException ex) {
+		return buildErrorResponse(ex.getMessage(), HttpStatus.valueOf(ex.getErrorCode().getHttpCode()));
+	}
+	
+	
 	@ExceptionHandler(EmailException.class)
 	public ResponseEntity<ErrorResponse> handleEmailException(EmailException ex) {
 		return buildErrorResponse(ex.getMessage(), HttpStatus.CONFLICT);
 	}
 	
 	
+	@ExceptionHandler(PreconditionFailedException.class)
+	public ResponseEntity<ErrorResponse> handlePreconditionFailed(PreconditionFailedException ex) {
+		return buildErrorResponse(ex.getMessage(), HttpStatus.PRECONDITION_FAILED);
+	}
+	
+	
+	// Escritura sin If-Match que perdio la carrera contra otra escritura concurrente (@Version)
+	@ExceptionHandler(OptimisticLockingFailureException.class)
+	public ResponseEntity<ErrorResponse> handleOptimisticLocking(OptimisticLockingFailureException ex) {
+		return buildErrorResponse("El recurso fue modificado por otra solicitud, vuelva a intentarlo", HttpStatus.CONFLICT);
+	}
+	
+	
 	@ExceptionHandler(InvalidJwtAuthenticationException.class)
 	public ResponseEntity<ErrorResponse> handleInvalidJwt(InvalidJwtAuthenticationException ex) {
 		return buildErrorResponse(ex.getMessage(), HttpStatus.UNAUTHORIZED);
@@ -50,6 +73,22 @@ public class GlobalExceptionHandler{
 	}
 	
 	
+	@ExceptionHandler(HashingUnavailableException.class)
+	public ResponseEntity<ErrorResponse> handleHashingUnavailable(HashingUnavailableException ex) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+				.body(new ErrorResponse(ex.getMessage()));
+	}
+	
+	
+	@ExceptionHandler(TooManyAttemptsException.class)
+	public ResponseEntity<ErrorResponse> handleTooManyAttempts(TooManyAttemptsException ex) {
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+				.body(new ErrorResponse(ex.getMessage()));
+	}
+	
+	
 	@ExceptionHandler(MethodArgumentNotValidException.class)
 	public ResponseEntity<ErrorResponse> handleValidationErrors(MethodArgumentNotValidException ex) {
 		String message = ex.getBindingResult().getFieldErrors().stream()
@@ -59,6 +98,16 @@ public class GlobalExceptionHandler{
 		return buildErrorResponse(message, HttpStatus.BAD_REQUEST);
 	}
 	
+	// Parametro de la URL con un valor que no se puede convertir (fecha, numero o booleano); no se repite el valor recibido
+	@ExceptionHandler(MethodArgumentTypeMismatchException.class)
+	public ResponseEntity<ErrorResponse> handleTypeMismatch(MethodArgumentTypeMismatchException ex) {
+		String message = ex.getName() + ": valor inválido";
+		if (ex.getRequiredType() != null) {
+			message += ", se espera " + ex.getRequiredType().getSimpleName();
+		}
+		return buildErrorResponse(message, HttpStatus.BAD_REQUEST);
+	}
+	
 	@ExceptionHandler(Exception.class)
 	public ResponseEntity<ErrorResponse> handleGeneric(Exception ex) {
 		logger.error("Error inesperado en api-users ", ex);
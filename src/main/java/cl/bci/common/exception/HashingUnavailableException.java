@@ -0,0 +1,11 @@
+package cl.bci.common.exception;
+
+public class HashingUnavailableException extends RuntimeException {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public HashingUnavailableException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,9 @@
+package cl.bci.common.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	
+	public PreconditionFailedException(String message) {
+		super(message);
+	}
+}
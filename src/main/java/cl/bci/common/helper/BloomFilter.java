@@ -0,0 +1,87 @@
+package cl.bci.common.helper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de textos, sin locks (los bits se activan con CAS).
+ * mightContain en false es definitivo; en true el valor puede no estar (falso positivo con probabilidad ~fpp
+ * mientras no se superen las expectedInsertions). No admite eliminar: para olvidar valores se construye otro.
+ */
+public class BloomFilter {
+	private final AtomicLongArray words;
+	private final long bits;
+	private final int hashes;
+
+	public BloomFilter(long expectedInsertions, double fpp) {
+		long n = Math.max(1, expectedInsertions);
+		double p = Math.min(Math.max(fpp, 1e-9), 0.5);
+		// m = -n ln(p) / ln(2)^2 y k = m/n ln(2), redondeado a palabras de 64 bits
+		long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+		int length = (int) Math.min(Integer.MAX_VALUE - 8, (m + 63) / 64);
+		this.words = new AtomicLongArray(length);
+		this.bits = (long) length * 64;
+		this.hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+	}
+
+	public void put(String value) {
+		long h1 = hash(value);
+		long h2 = step(h1);
+		for (int i = 0; i < hashes; i++) {
+			long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+			int index = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long current;
+			do {
+				current = words.get(index);
+				if ((current & mask) != 0) {
+					break;
+				}
+			} while (!words.compareAndSet(index, current, current | mask));
+		}
+	}
+
+	public boolean mightContain(String value) {
+		long h1 = hash(value);
+		long h2 = step(h1);
+		for (int i = 0; i < hashes; i++) {
+			long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+			if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public long bitSize() {
+		return bits;
+	}
+
+	public int hashFunctions() {
+		return hashes;
+	}
+
+	/*
+	 * FNV-1a de 64 bits sobre los bytes UTF-8 con una mezcla final (splitmix64); de este valor salen
+	 * las k posiciones por doble hashing (h1 + i*h2).
+	 */
+	private static long hash(String value) {
+		long h = 0xCBF29CE484222325L;
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			h ^= b & 0xFF;
+			h *= 0x100000001B3L;
+		}
+		return mix(h);
+	}
+
+	// segundo hash, impar para que las k posiciones no se repitan
+	private static long step(long h1) {
+		return mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+	}
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
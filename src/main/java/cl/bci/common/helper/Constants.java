@@ -5,5 +5,7 @@ public final class Constants {
 	
 	public static final String BEARER_PREFIX = "Bearer ";
 	public static final String AUTHORIZATION = "Authorization";
+	public static final String NEXT_CURSOR = "X-Next-Cursor";
+	public static final String MERGE_PATCH_JSON = "application/merge-patch+json";
 
 }
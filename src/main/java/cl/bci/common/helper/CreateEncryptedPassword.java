@@ -1,11 +1,14 @@
 package cl.bci.common.helper;
 
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import java.time.Duration;
+
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import cl.bci.common.security.PasswordEncoders;
+
 public class CreateEncryptedPassword {
 	public static void main(String[] args) {
-		PasswordEncoder encoder = new BCryptPasswordEncoder();
+		PasswordEncoder encoder = PasswordEncoders.create(PasswordEncoders.BCRYPT, Duration.ZERO);
 		System.out.println("Admin123: " + encoder.encode("Admin123"));
 		System.out.println("User123: " + encoder.encode("User123"));
 	}
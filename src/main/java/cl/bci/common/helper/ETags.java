@@ -0,0 +1,33 @@
+package cl.bci.common.helper;
+
+import cl.bci.common.exception.PreconditionFailedException;
+
+/**
+ * ETag fuerte a partir de la version (@Version) de un recurso: "3".
+ */
+public final class ETags {
+	private ETags() {}
+	
+	public static String of(long version) {
+		return "\"" + version + "\"";
+	}
+	
+	/**
+	 * Lee la version esperada desde If-Match. Retorna null si no viene o viene "*" (escritura sin condicion).
+	 * If-Match exige comparacion fuerte: un ETag debil, una lista o un valor que no es nuestro no puede coincidir.
+	 */
+	public static Long parseIfMatch(String ifMatch) {
+		if (ifMatch == null || ifMatch.isBlank() || "*".equals(ifMatch.trim())) {
+			return null;
+		}
+		String value = ifMatch.trim();
+		if (value.length() > 2 && value.startsWith("\"") && value.endsWith("\"")) {
+			try {
+				return Long.parseLong(value.substring(1, value.length() - 1));
+			} catch (NumberFormatException e) {
+				// cae al rechazo
+			}
+		}
+		throw new PreconditionFailedException("If-Match no coincide con la versión actual del recurso");
+	}
+}
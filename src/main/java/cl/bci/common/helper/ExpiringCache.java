@@ -0,0 +1,173 @@
+package cl.bci.common.helper;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache en memoria acotada por cantidad de entradas y por tiempo de vida.
+ * Cada entrada puede traer su propia expiracion (ej: el exp de un JWT), se usa la menor
+ * entre esa y el TTL de la cache. Con maxEntries = 0 la cache queda deshabilitada
+ * y todas las lecturas van al origen.
+ */
+public class ExpiringCache<K, V> {
+	private static final long PURGE_INTERVAL_MILLIS = 1000;
+
+	private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+	private final int maxEntries;
+	private final long ttlMillis;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+	private final LongAdder loadNanos = new LongAdder();
+
+	private volatile long lastPurge;
+
+	private record Entry<V>(V value, long expiresAt) {}
+
+	public ExpiringCache(int maxEntries, Duration ttl) {
+		this.maxEntries = Math.max(0, maxEntries);
+		this.ttlMillis = ttl == null ? Long.MAX_VALUE : ttl.toMillis();
+	}
+
+	public boolean isEnabled() {
+		return maxEntries > 0;
+	}
+
+	public V get(K key) {
+		Entry<V> entry = entries.get(key);
+		if (entry == null) {
+			misses.increment();
+			return null;
+		}
+		if (entry.expiresAt() <= System.currentTimeMillis()) {
+			if (entries.remove(key, entry)) {
+				evictions.increment();
+			}
+			misses.increment();
+			return null;
+		}
+		hits.increment();
+		return entry.value();
+	}
+
+	/**
+	 * Lee desde la cache y, si no esta, carga desde el origen midiendo la latencia de carga.
+	 * Los valores null no se almacenan.
+	 */
+	public V get(K key, Function<? super K, ? extends V> loader) {
+		V value = get(key);
+		if (value != null) {
+			return value;
+		}
+		long start = System.nanoTime();
+		value = loader.apply(key);
+		loadNanos.add(System.nanoTime() - start);
+		loads.increment();
+		if (value != null) {
+			put(key, value);
+		}
+		return value;
+	}
+
+	public void put(K key, V value) {
+		put(key, value, Long.MAX_VALUE);
+	}
+
+	public void put(K key, V value, long expiresAtMillis) {
+		if (!isEnabled()) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		long ttlLimit = ttlMillis > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + ttlMillis;
+		long expiresAt = Math.min(expiresAtMillis, ttlLimit);
+		if (expiresAt <= now) {
+			return;
+		}
+		if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+			makeRoom(now);
+		}
+		entries.put(key, new Entry<>(value, expiresAt));
+	}
+
+	public void invalidate(K key) {
+		entries.remove(key);
+	}
+
+	public void invalidateIf(Predicate<? super V> predicate) {
+		entries.values().removeIf(e -> predicate.test(e.value()));
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long hitCount() {
+		return hits.sum();
+	}
+
+	public long missCount() {
+		return misses.sum();
+	}
+
+	public long evictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Expone las estadisticas con los nombres estandar de micrometer (cache.gets, cache.evictions, ...).
+	 */
+	public void registerMetrics(MeterRegistry registry, String cacheName) {
+		FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+				.tag("cache", cacheName).tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+				.tag("cache", cacheName).tag("result", "miss")
+				.register(registry);
+		FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+				.tag("cache", cacheName)
+				.register(registry);
+		Gauge.builder("cache.size", entries, ConcurrentHashMap::size)
+				.tag("cache", cacheName)
+				.register(registry);
+		FunctionTimer.builder("cache.load.duration", this, c -> c.loads.sum(), c -> c.loadNanos.sum(), TimeUnit.NANOSECONDS)
+				.tag("cache", cacheName)
+				.register(registry);
+	}
+
+	/**
+	 * Se llama con la cache llena: primero se eliminan las entradas vencidas (a lo mas una vez por segundo)
+	 * y si aun no hay espacio se desaloja un 10% de las entradas para amortizar el costo.
+	 */
+	private void makeRoom(long now) {
+		if (now - lastPurge >= PURGE_INTERVAL_MILLIS) {
+			lastPurge = now;
+			int before = entries.size();
+			entries.values().removeIf(e -> e.expiresAt() <= now);
+			evictions.add(Math.max(0, before - entries.size()));
+		}
+
+		int target = maxEntries - Math.max(1, maxEntries / 10);
+		Iterator<K> it = entries.keySet().iterator();
+		while (entries.size() > target && it.hasNext()) {
+			it.next();
+			it.remove();
+			evictions.increment();
+		}
+	}
+}
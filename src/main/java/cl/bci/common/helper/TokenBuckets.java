@@ -0,0 +1,82 @@
+package cl.bci.common.helper;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets por clave, sin locks. Cada clave recibe capacity fichas que se reponen de a una
+ * cada period / capacity. El estado de un bucket es un solo long (el instante en que vuelve a estar lleno,
+ * algoritmo GCRA) que se actualiza con CAS; el mapa concurrente reparte las claves en segmentos.
+ * Un bucket lleno equivale a uno inexistente, asi que los inactivos se pueden eliminar sin perder nada.
+ * El mapa no pasa de maxEntries: si esta lleno de buckets que aun no se reponen, las claves nuevas
+ * se rechazan hasta que alguno se llene (nunca se descarta el estado de una clave activa).
+ */
+public class TokenBuckets {
+	private static final long PURGE_INTERVAL_NANOS = Duration.ofSeconds(1).toNanos();
+
+	private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+	private final long interval;
+	private final long burst;
+	private final int maxEntries;
+
+	private volatile long lastPurge;
+
+	public TokenBuckets(int capacity, Duration period, int maxEntries) {
+		int tokens = Math.max(1, capacity);
+		this.interval = Math.max(1, period.toNanos() / tokens);
+		this.burst = interval * tokens;
+		this.maxEntries = Math.max(1, maxEntries);
+	}
+
+	/**
+	 * Consume una ficha de la clave. Devuelve 0 si habia ficha o los nanos que faltan para la siguiente.
+	 */
+	public long tryAcquire(String key, long now) {
+		AtomicLong full = buckets.get(key);
+		if (full == null) {
+			if (buckets.size() >= maxEntries && !makeRoom(now)) {
+				return interval;
+			}
+			AtomicLong created = new AtomicLong(now);
+			full = buckets.putIfAbsent(key, created);
+			if (full == null) {
+				full = created;
+			}
+		}
+		long current;
+		long next;
+		do {
+			current = full.get();
+			next = Math.max(current, now) + interval;
+			long wait = next - burst - now;
+			if (wait > 0) {
+				return wait;
+			}
+		} while (!full.compareAndSet(current, next));
+		return 0;
+	}
+
+	/**
+	 * Devuelve una ficha consumida con tryAcquire, sin pasar de la capacidad. Si el bucket ya no existe no hace nada.
+	 */
+	public void release(String key) {
+		AtomicLong full = buckets.get(key);
+		if (full != null) {
+			full.addAndGet(-interval);
+		}
+	}
+
+	public int size() {
+		return buckets.size();
+	}
+
+	// Elimina los buckets llenos, a lo mas una vez por segundo; devuelve si quedo espacio
+	private boolean makeRoom(long now) {
+		if (now - lastPurge >= PURGE_INTERVAL_NANOS) {
+			lastPurge = now;
+			buckets.values().removeIf(full -> full.get() <= now);
+		}
+		return buckets.size() < maxEntries;
+	}
+}
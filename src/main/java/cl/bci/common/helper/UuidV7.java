@@ -0,0 +1,38 @@
+package cl.bci.common.helper;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Genera UUID version 7 (RFC 9562): 48 bits de timestamp en milisegundos seguidos de bits aleatorios.
+ * Al quedar ordenados por tiempo, las inserciones caen al final del indice en vez de repartirse por todo el B-tree.
+ * Usa ThreadLocalRandom para no competir por el lock de SecureRandom (el id no es un secreto).
+ */
+public final class UuidV7 {
+	private UuidV7() {}
+	
+	public static UUID generate() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long millis = System.currentTimeMillis();
+		
+		long msb = (millis << 16)
+				| 0x7000L                          // version 7
+				| (random.nextInt() & 0x0FFFL);     // rand_a, 12 bits
+		long lsb = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL)
+				| 0x8000000000000000L;             // variante IETF
+		return new UUID(msb, lsb);
+	}
+	
+	public static byte[] toBytes(UUID uuid) {
+		return ByteBuffer.allocate(16)
+				.putLong(uuid.getMostSignificantBits())
+				.putLong(uuid.getLeastSignificantBits())
+				.array();
+	}
+	
+	public static UUID fromBytes(byte[] bytes) {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		return new UUID(buffer.getLong(), buffer.getLong());
+	}
+}
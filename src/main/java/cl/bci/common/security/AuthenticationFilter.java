@@ -26,7 +26,7 @@ public class AuthenticationFilter extends OncePerRequestFilter {
 	
 	private static final AntPathMatcher PATHS = new AntPathMatcher();
 	private static final String[] EXCLUDE = {
-      "/auth/login", "/h2-console/**",
+      "/auth/login", "/auth/refresh", "/h2-console/**",
       "/swagger-ui/**", "/v3/api-docs/**", "/swagger-resources/**", "/webjars/**"
     };
 
@@ -45,32 +45,35 @@ public class AuthenticationFilter extends OncePerRequestFilter {
 	    }
 	    return false;
 	}
+	
+	// Las respuestas asincronas (GET /users/export) vuelven a pasar por la autorizacion al redespachar: el token se verifica otra vez (cacheado)
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
 
 	@Override
 	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
 			throws ServletException, IOException {
 		
-		System.out.println("AuthenticationFilter.doFilterInternal");
-		
 		if (SecurityContextHolder.getContext().getAuthentication() == null) {
-		      
-		    	final String token = getTokenFromRequest(request);
-		        
-		        if (jwtUtil.validateToken(token)) {
-		          String username = jwtUtil.extractUsername(token);
-		          List<String> roles = jwtUtil.extractRoles(token); // asegúrate de tener este método
-		          var authorities = roles == null ? List.<SimpleGrantedAuthority>of()
-		              : roles.stream()
-		                  .filter(StringUtils::hasText)
-		                  .map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
-		                  .map(SimpleGrantedAuthority::new)
-		                  .collect(Collectors.toList());
-
-		          var authentication = new UsernamePasswordAuthenticationToken(username, null, authorities);
-		          authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-		          SecurityContextHolder.getContext().setAuthentication(authentication);
-		        }
-		    }
+			final String token = getTokenFromRequest(request);
+			
+			// Un solo paso de verificacion: firma, expiracion, subject y roles (cacheado por token)
+			jwtUtil.verify(token).ifPresent(principal -> {
+				List<String> roles = principal.roles();
+				var authorities = roles == null ? List.<SimpleGrantedAuthority>of()
+						: roles.stream()
+							.filter(StringUtils::hasText)
+							.map(r -> r.startsWith("ROLE_") ? r : "ROLE_" + r)
+							.map(SimpleGrantedAuthority::new)
+							.collect(Collectors.toList());
+				
+				var authentication = new UsernamePasswordAuthenticationToken(principal.subject(), null, authorities);
+				authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+				SecurityContextHolder.getContext().setAuthentication(authentication);
+			});
+		}
 		
 		filterChain.doFilter(request, response);
 		
@@ -0,0 +1,13 @@
+package cl.bci.common.security;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Resultado de verificar un JWT: se obtiene con un solo parseo y se reutiliza mientras el token no expire.
+ */
+public record JwtPrincipal(
+		String subject,
+		List<String> roles,
+		Instant expiresAt
+) {}
@@ -2,9 +2,12 @@ package cl.bci.common.security;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
@@ -13,22 +16,44 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import cl.bci.common.exception.JwtValidationException;
+import cl.bci.common.helper.ExpiringCache;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 
 @Component
 public class JwtUtil {
 	@Value("${jwt.secret}")
 	private String secret;
+	
+	@Value("${jwt.cache.max-entries:10000}")
+	private int cacheMaxEntries;
+	
+	// vigencia del access token; se renueva con el refresh token (POST /auth/refresh)
+	@Value("${jwt.expiration-millis:600000}")
+	private long expirationMillis = 600000;
 
 	private Key key;
 	private JwtParser parser;
 	
+	/**
+	 * Tokens ya verificados, indexados por el digest SHA-256 del token (nunca el token en claro).
+	 * Cada entrada vence junto con el exp del JWT.
+	 */
+	private ExpiringCache<String, JwtPrincipal> verifiedTokens;
+	
+	private final MeterRegistry meterRegistry;
+	
+	public JwtUtil(MeterRegistry meterRegistry) {
+		this.meterRegistry = meterRegistry;
+	}
+	
 	@PostConstruct
 	public void init() {
 		byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
@@ -39,6 +64,8 @@ public class JwtUtil {
 		
 		this.key = Keys.hmacShaKeyFor(keyBytes);
 		this.parser = Jwts.parserBuilder().setSigningKey(this.key).build();
+		this.verifiedTokens = new ExpiringCache<>(cacheMaxEntries, null);
+		this.verifiedTokens.registerMetrics(meterRegistry, "jwt.verified-tokens");
     }
 	
 	public String generateToken(String email, List<String> roles) {
@@ -46,34 +73,72 @@ public class JwtUtil {
 				.setSubject(email)
 				.claim("roles", roles)
 				.setIssuedAt(new Date())
-				.setExpiration(new Date(System.currentTimeMillis() + 600000))
+				.setExpiration(new Date(System.currentTimeMillis() + expirationMillis))
 				.signWith(key, SignatureAlgorithm.HS256)
 				.compact();
 	}
 	
+	/**
+	 * Verifica firma y expiracion con un unico parseo. Si el mismo token ya fue verificado
+	 * se responde desde la cache sin volver a calcular el HMAC ni parsear el JSON.
+	 */
+	public Optional<JwtPrincipal> verify(String token) {
+		if (!StringUtils.hasText(token)) {
+			return Optional.empty();
+		}
+		
+		String cacheKey = digest(token);
+		JwtPrincipal cached = verifiedTokens.get(cacheKey);
+		if (cached != null) {
+			return Optional.of(cached);
+		}
+		
+		try {
+			Claims c = parser.parseClaimsJws(token).getBody();
+			Date exp = c.getExpiration();
+			if (exp != null && !exp.after(new Date())) {
+				return Optional.empty();
+			}
+			
+			JwtPrincipal principal = new JwtPrincipal(c.getSubject(), extractRoles(c), exp == null ? null : exp.toInstant());
+			verifiedTokens.put(cacheKey, principal, exp == null ? Long.MAX_VALUE : exp.getTime());
+			return Optional.of(principal);
+		} catch (JwtException | IllegalArgumentException e) {
+			return Optional.empty();
+		}
+	}
+	
 	public String extractUsername(String token) {
-		Claims c = parser.parseClaimsJws(token).getBody();
-	    return c.getSubject();
+		return verify(token)
+				.map(JwtPrincipal::subject)
+				.orElseThrow(() -> new JwtValidationException("Token inválido"));
 	}
 	
 	public boolean validateToken(String token) {
-		try {
-	      Claims c = parser.parseClaimsJws(token).getBody();
-	      Date exp = c.getExpiration();
-	      return exp == null || exp.after(new Date());
-	    } catch (JwtException | IllegalArgumentException e) {
-	      return false;
-	    }
+		return verify(token).isPresent();
 	}
 
 	public List<String> extractRoles(String token) {
-		Claims c = parser.parseClaimsJws(token).getBody();
-
+		return verify(token)
+				.map(JwtPrincipal::roles)
+				.orElseThrow(() -> new JwtValidationException("Token inválido"));
+	}
+	
+	private static List<String> extractRoles(Claims c) {
 	    Object obj = Optional.ofNullable(c.get("roles"))
 	                .orElse(Optional.ofNullable(c.get("authorities"))
 	                .orElse(c.get("scope")));
 
-	    return toStringList(obj);
+	    return List.copyOf(toStringList(obj));
+	}
+	
+	private static String digest(String token) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+			return HexFormat.of().formatHex(hash);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 no disponible", e);
+		}
 	}
 	
 	private static List<String> toStringList(Object obj) {
@@ -0,0 +1,33 @@
+package cl.bci.common.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Tokens opacos aleatorios (refresh tokens). Tienen 256 bits de entropia, asi que basta un SHA-256
+ * para guardarlos: no hay diccionario contra el que probar, a diferencia de una contraseña.
+ */
+public final class OpaqueTokens {
+	private static final int TOKEN_BYTES = 32;
+	private static final SecureRandom RANDOM = new SecureRandom();
+
+	private OpaqueTokens() {
+	}
+
+	public static String generate() {
+		byte[] bytes = new byte[TOKEN_BYTES];
+		RANDOM.nextBytes(bytes);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+	}
+
+	public static byte[] hash(String token) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 no disponible", e);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package cl.bci.common.security;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Arma el PasswordEncoder de la aplicacion: los hashes llevan el algoritmo como prefijo ({bcrypt}, {pbkdf2}, {argon2})
+ * y se verifican con el que corresponda, los nuevos se generan con el configurado.
+ * Los hashes sin prefijo (data.sql y usuarios anteriores) se verifican como BCrypt.
+ *
+ * Con una latencia objetivo se calibra el costo del algoritmo configurado en el hardware actual: el mayor
+ * que no supere el objetivo, sin bajar del costo por defecto. Los hashes con un costo menor o de otro algoritmo
+ * quedan marcados para recalcularse (upgradeEncoding) en el siguiente login exitoso.
+ */
+public final class PasswordEncoders {
+	private static final Logger logger = LoggerFactory.getLogger(PasswordEncoders.class);
+
+	public static final String BCRYPT = "bcrypt";
+	public static final String PBKDF2 = "pbkdf2";
+	public static final String ARGON2 = "argon2";
+
+	static final int BCRYPT_MIN_STRENGTH = 10;
+	static final int BCRYPT_MAX_STRENGTH = 31;
+	static final int PBKDF2_MIN_ITERATIONS = 310_000;
+	static final int ARGON2_MIN_ITERATIONS = 2;
+	private static final int ARGON2_SALT_BYTES = 16;
+	private static final int ARGON2_HASH_BYTES = 32;
+	private static final int ARGON2_PARALLELISM = 1;
+	private static final int ARGON2_MEMORY_KB = 1 << 14;
+	private static final int CALIBRATION_RUNS = 3;
+	private static final String CALIBRATION_PASSWORD = "Calibracion123";
+
+	private PasswordEncoders() {
+	}
+
+	public static PasswordEncoder create(String algorithm, Duration targetLatency) {
+		String idForEncode = algorithm == null ? BCRYPT : algorithm.trim().toLowerCase(Locale.ROOT);
+		boolean argon2Available = ClassUtils.isPresent("org.bouncycastle.crypto.params.Argon2Parameters",
+				PasswordEncoders.class.getClassLoader());
+		if (ARGON2.equals(idForEncode) && !argon2Available) {
+			throw new IllegalStateException("app.password.algorithm=argon2 requiere org.bouncycastle:bcprov en el classpath");
+		}
+		if (!BCRYPT.equals(idForEncode) && !PBKDF2.equals(idForEncode) && !ARGON2.equals(idForEncode)) {
+			throw new IllegalStateException("Algoritmo de contraseñas no soportado: " + algorithm);
+		}
+		boolean calibrate = targetLatency != null && !targetLatency.isZero() && !targetLatency.isNegative();
+
+		// solo se calibra el que genera hashes; los demas solo verifican y su costo viene en el hash
+		BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(calibrate && BCRYPT.equals(idForEncode)
+				? calibrateBcrypt(targetLatency)
+				: BCRYPT_MIN_STRENGTH);
+		Map<String, PasswordEncoder> encoders = new HashMap<>();
+		encoders.put(BCRYPT, bcrypt);
+		encoders.put(PBKDF2, new Pbkdf2IterationsPasswordEncoder(calibrate && PBKDF2.equals(idForEncode)
+				? calibrateLinear(Pbkdf2IterationsPasswordEncoder::new, PBKDF2_MIN_ITERATIONS, targetLatency)
+				: PBKDF2_MIN_ITERATIONS));
+		if (argon2Available) {
+			encoders.put(ARGON2, argon2(calibrate && ARGON2.equals(idForEncode)
+					? calibrateLinear(PasswordEncoders::argon2, ARGON2_MIN_ITERATIONS, targetLatency)
+					: ARGON2_MIN_ITERATIONS));
+		}
+
+		DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(idForEncode, encoders);
+		delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+		return delegating;
+	}
+
+	/*
+	 * Cada punto de strength duplica el costo de BCrypt: se mide el minimo y se suben tantos puntos
+	 * como veces quepa el doble dentro del objetivo.
+	 */
+	static int calibrateBcrypt(Duration targetLatency) {
+		long base = measure(new BCryptPasswordEncoder(BCRYPT_MIN_STRENGTH));
+		int strength = BCRYPT_MIN_STRENGTH;
+		while (strength < BCRYPT_MAX_STRENGTH && base << (strength + 1 - BCRYPT_MIN_STRENGTH) <= targetLatency.toNanos()) {
+			strength++;
+		}
+		logger.info("BCrypt calibrado: strength {} (base {} ms, objetivo {} ms)", strength, base / 1_000_000, targetLatency.toMillis());
+		return strength;
+	}
+
+	// PBKDF2 y Argon2 escalan lineal con las iteraciones
+	static int calibrateLinear(IntFunction<PasswordEncoder> encoder, int minIterations, Duration targetLatency) {
+		long base = measure(encoder.apply(minIterations));
+		long iterations = Math.max(minIterations, (long) ((double) minIterations * targetLatency.toNanos() / Math.max(1, base)));
+		int calibrated = (int) Math.min(Integer.MAX_VALUE, iterations);
+		logger.info("Iteraciones calibradas: {} (base {} ms con {}, objetivo {} ms)", calibrated, base / 1_000_000, minIterations,
+				targetLatency.toMillis());
+		return calibrated;
+	}
+
+	// el minimo de varias corridas, la primera tambien calienta el JIT
+	private static long measure(PasswordEncoder encoder) {
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < CALIBRATION_RUNS; i++) {
+			long start = System.nanoTime();
+			encoder.encode(CALIBRATION_PASSWORD);
+			best = Math.min(best, System.nanoTime() - start);
+		}
+		return best;
+	}
+
+	private static PasswordEncoder argon2(int iterations) {
+		return new Argon2PasswordEncoder(ARGON2_SALT_BYTES, ARGON2_HASH_BYTES, ARGON2_PARALLELISM, ARGON2_MEMORY_KB, iterations);
+	}
+}
@@ -1,21 +1,130 @@
 package cl.bci.common.security;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import cl.bci.common.exception.HashingUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Las operaciones BCrypt se ejecutan en un pool propio del tamaño de la CPU y con cola acotada,
+ * asi una rafaga de logins no acapara los hilos de Tomcat. Si la cola esta llena se falla
+ * de inmediato con HashingUnavailableException (503) en vez de acumular latencia.
+ * Con hash-queue-capacity=0 no hay cola: solo se acepta una operacion si hay un hilo libre.
+ */
 @Component
 public class PasswordUtil {
 	private final PasswordEncoder passwordEncoder;
+	private final ThreadPoolExecutor hashExecutor;
+	private final Timer encodeTimer;
+	private final Timer matchesTimer;
 
-	public PasswordUtil(PasswordEncoder encoder) {
+	public PasswordUtil(PasswordEncoder encoder, MeterRegistry meterRegistry,
+			@Value("${app.password.hash-threads:0}") int hashThreads,
+			@Value("${app.password.hash-queue-capacity:-1}") int queueCapacity) {
 		this.passwordEncoder = encoder;
+		
+		int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+		int capacity = queueCapacity >= 0 ? queueCapacity : threads * 4;
+		BlockingQueue<Runnable> queue = capacity == 0 ? new SynchronousQueue<>() : new ArrayBlockingQueue<>(capacity);
+		AtomicInteger counter = new AtomicInteger();
+		this.hashExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, queue,
+				r -> {
+					Thread t = new Thread(r, "password-hash-" + counter.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				},
+				new ThreadPoolExecutor.AbortPolicy());
+		
+		this.encodeTimer = Timer.builder("password.hash").tag("operation", "encode").register(meterRegistry);
+		this.matchesTimer = Timer.builder("password.hash").tag("operation", "matches").register(meterRegistry);
+		Gauge.builder("password.hash.queue", hashExecutor, e -> e.getQueue().size()).register(meterRegistry);
+		Gauge.builder("password.hash.active", hashExecutor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
 	}
 	
 	public boolean matches(String rawPassword, String encodedPassword) {
-		return passwordEncoder.matches(rawPassword, encodedPassword);
+		return await(submitMatches(rawPassword, encodedPassword));
 	}
 	
 	public String encode(String rawPassword) {
-        return passwordEncoder.encode(rawPassword);
+		return await(submitEncode(rawPassword));
     }
+	
+	/**
+	 * Hashea varias contraseñas en paralelo, en ventanas del tamaño del pool para no llenar
+	 * la cola que comparten los logins y registros individuales.
+	 */
+	public List<String> encodeAll(List<String> rawPasswords) {
+		int window = hashExecutor.getMaximumPoolSize();
+		List<String> hashes = new ArrayList<>(rawPasswords.size());
+		for (int from = 0; from < rawPasswords.size(); from += window) {
+			List<Future<String>> futures = rawPasswords.subList(from, Math.min(from + window, rawPasswords.size()))
+					.stream()
+					.map(this::submitEncode)
+					.toList();
+			for (Future<String> future : futures) {
+				hashes.add(await(future));
+			}
+		}
+		return hashes;
+	}
+	
+	// Hash de otro algoritmo o con menor costo que el configurado; no calcula ningun hash
+	public boolean needsUpgrade(String encodedPassword) {
+		return encodedPassword != null && passwordEncoder.upgradeEncoding(encodedPassword);
+	}
+	
+	public Future<Boolean> submitMatches(String rawPassword, String encodedPassword) {
+		return submit(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+	}
+	
+	public Future<String> submitEncode(String rawPassword) {
+		return submit(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+	}
+	
+	private <T> Future<T> submit(Timer timer, Callable<T> task) {
+		try {
+			return hashExecutor.submit(() -> timer.recordCallable(task));
+		} catch (RejectedExecutionException e) {
+			return CompletableFuture.failedFuture(
+					new HashingUnavailableException("Servicio ocupado, intente nuevamente en unos segundos", e));
+		}
+	}
+	
+	public static <T> T await(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrumpido esperando el hash de la contraseña", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException re) {
+				throw re;
+			}
+			throw new IllegalStateException("Error calculando el hash de la contraseña", e.getCause());
+		}
+	}
+	
+	@PreDestroy
+	public void shutdown() {
+		hashExecutor.shutdown();
+	}
 }
@@ -0,0 +1,88 @@
+package cl.bci.common.security;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * PBKDF2-HMAC-SHA256 que guarda las iteraciones junto al hash ("iteraciones$salt$hash" en base64).
+ * El Pbkdf2PasswordEncoder de Spring no las guarda y verifica con las configuradas, asi que no se podrian
+ * cambiar sin invalidar los hashes existentes; aqui cada hash se verifica con las suyas y upgradeEncoding
+ * pide recalcular los que tienen menos de las configuradas.
+ */
+public class Pbkdf2IterationsPasswordEncoder implements PasswordEncoder {
+	private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+	private static final int SALT_BYTES = 16;
+	private static final int KEY_BITS = 256;
+	private static final char SEPARATOR = '$';
+
+	private final SecureRandom random = new SecureRandom();
+	private final int iterations;
+
+	public Pbkdf2IterationsPasswordEncoder(int iterations) {
+		this.iterations = Math.max(1, iterations);
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	@Override
+	public String encode(CharSequence rawPassword) {
+		byte[] salt = new byte[SALT_BYTES];
+		random.nextBytes(salt);
+		Base64.Encoder b64 = Base64.getEncoder().withoutPadding();
+		return iterations + String.valueOf(SEPARATOR) + b64.encodeToString(salt)
+				+ SEPARATOR + b64.encodeToString(derive(rawPassword, salt, iterations));
+	}
+
+	@Override
+	public boolean matches(CharSequence rawPassword, String encodedPassword) {
+		String[] parts = split(encodedPassword);
+		if (parts == null) {
+			return false;
+		}
+		try {
+			byte[] expected = Base64.getDecoder().decode(parts[2]);
+			byte[] actual = derive(rawPassword, Base64.getDecoder().decode(parts[1]), Integer.parseInt(parts[0]));
+			return MessageDigest.isEqual(expected, actual);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		String[] parts = split(encodedPassword);
+		try {
+			return parts == null || Integer.parseInt(parts[0]) < iterations;
+		} catch (NumberFormatException e) {
+			return true;
+		}
+	}
+
+	private static String[] split(String encodedPassword) {
+		if (encodedPassword == null) {
+			return null;
+		}
+		String[] parts = encodedPassword.split("\\" + SEPARATOR);
+		return parts.length == 3 ? parts : null;
+	}
+
+	private static byte[] derive(CharSequence rawPassword, byte[] salt, int iterations) {
+		PBEKeySpec spec = new PBEKeySpec(rawPassword.toString().toCharArray(), salt, iterations, KEY_BITS);
+		try {
+			return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("PBKDF2 no disponible", e);
+		} finally {
+			spec.clearPassword();
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package cl.bci.common.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import cl.bci.common.helper.ExpiringCache;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Verificaciones de contraseña exitosas recientes, para que las cuentas de servicio que hacen login
+ * muchas veces por minuto no paguen un BCrypt en cada llamada.
+ * La clave es un HMAC-SHA256 de (correo, contraseña, hash guardado) con una llave aleatoria de la instancia:
+ * no se guarda la contraseña ni algo que sirva para probar contraseñas sin la llave, y como incluye el hash
+ * un cambio de contraseña deja de coincidir de inmediato. Solo se guardan verificaciones exitosas.
+ * Con app.cache.verified-passwords.max-entries=0 queda deshabilitada.
+ */
+@Component
+public class VerifiedPasswords {
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final char SEPARATOR = '\0';
+
+	private final ExpiringCache<String, Boolean> verified;
+	private final ThreadLocal<Mac> mac;
+
+	public VerifiedPasswords(MeterRegistry meterRegistry,
+			@Value("${app.cache.verified-passwords.max-entries:0}") int maxEntries,
+			@Value("${app.cache.verified-passwords.ttl:30s}") Duration ttl) {
+		this.verified = new ExpiringCache<>(maxEntries, ttl);
+		verified.registerMetrics(meterRegistry, "login.verified-passwords");
+
+		byte[] key = new byte[32];
+		new SecureRandom().nextBytes(key);
+		SecretKeySpec secret = new SecretKeySpec(key, ALGORITHM);
+		this.mac = ThreadLocal.withInitial(() -> {
+			try {
+				Mac instance = Mac.getInstance(ALGORITHM);
+				instance.init(secret);
+				return instance;
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("HMAC no disponible", e);
+			}
+		});
+	}
+
+	public boolean contains(String email, String rawPassword, String passwordHash) {
+		return verified.isEnabled() && verified.get(key(email, rawPassword, passwordHash)) != null;
+	}
+
+	// Se llama solo despues de un matches exitoso contra passwordHash
+	public void remember(String email, String rawPassword, String passwordHash) {
+		if (verified.isEnabled()) {
+			verified.put(key(email, rawPassword, passwordHash), Boolean.TRUE);
+		}
+	}
+
+	private String key(String email, String rawPassword, String passwordHash) {
+		String input = email + SEPARATOR + rawPassword + SEPARATOR + passwordHash;
+		byte[] digest = mac.get().doFinal(input.getBytes(StandardCharsets.UTF_8));
+		return Base64.getEncoder().withoutPadding().encodeToString(digest);
+	}
+}
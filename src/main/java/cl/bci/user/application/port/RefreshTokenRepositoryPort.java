@@ -0,0 +1,27 @@
+package cl.bci.user.application.port;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+import cl.bci.user.domain.RefreshToken;
+
+/**
+ * Refresh tokens indexados por el hash SHA-256 del token (nunca el token en claro).
+ */
+public interface RefreshTokenRepositoryPort {
+	void insert(byte[] tokenHash, RefreshToken token);
+	
+	Optional<RefreshToken> find(byte[] tokenHash);
+	
+	// Solo si aun no estaba usado: 0 significa que otra renovacion lo uso primero
+	int markUsed(byte[] tokenHash);
+	
+	int deleteFamily(UUID familyId);
+	
+	int deleteByUsers(Collection<UUID> userIds);
+	
+	// Elimina a lo mas batchSize tokens vencidos antes de now, retorna cuantos elimino
+	int deleteExpired(LocalDateTime now, int batchSize);
+}
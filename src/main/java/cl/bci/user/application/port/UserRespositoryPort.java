@@ -1,15 +1,79 @@
 package cl.bci.user.application.port;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
 
+import cl.bci.user.domain.Phone;
 import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserChanges;
+import cl.bci.user.domain.UserCredentials;
+import cl.bci.user.domain.UserCursor;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.domain.UserSearchCursor;
 
+/**
+ * Persistencia de usuarios. La implementacion se elige con app.persistence.adapter (jpa, jdbc o memory).
+ * Un correo repetido se informa con EmailException y cualquier otra violacion de integridad con DatabaseException.
+ */
 public interface UserRespositoryPort {
-	User save(User user);
-	void delete(Long id);
-	Optional<User> findById(Long id);
-	List<User> findAll();
-	boolean existsById(Long id);
+	User insert(User user);
+	
+	// Todo o nada: si un correo ya existe no se inserta ninguno
+	void insertAll(List<User> users);
+	
+	Optional<User> findById(UUID id);
+	Optional<Long> findVersion(UUID id);
+	Optional<UserCredentials> findCredentialsByEmail(String email);
 	boolean existsByEmail(String email);
+	Set<String> findExistingEmails(Collection<String> emails);
+	
+	// Usuarios con ese fono, comparando solo los digitos (Phone.digits), ordenados por (created, id)
+	List<User> findByPhone(String countrycode, String citycode, String number);
+	
+	/**
+	 * Pagina ordenada por (created, id) a partir del cursor, o desde el inicio si es null.
+	 * Los filtros van en el mismo WHERE que el keyset, el costo sigue siendo el de la pagina.
+	 */
+	List<User> findPage(UserFilter filter, UserCursor after, int limit);
+	
+	default List<User> findPage(UserCursor after, int limit) {
+		return findPage(UserFilter.NONE, after, limit);
+	}
+	
+	/**
+	 * Recorre todos los usuarios en el orden de findPage entregandolos en bloques de chunkSize.
+	 * Con JPA y JDBC debe llamarse dentro de una transaccion.
+	 */
+	void forEachChunk(int chunkSize, Consumer<List<User>> consumer);
+	
+	// Todos los correos registrados, para reconstruir el filtro de correos. Con JPA y JDBC dentro de una transaccion.
+	void forEachEmail(Consumer<String> consumer);
+	
+	/**
+	 * Usuarios cuyo nombre o correo empieza con el prefijo (ya normalizado con UserSearchCursor.normalize),
+	 * ordenados por UserSearchCursor.ORDER a partir del cursor, o desde el inicio si es null.
+	 */
+	List<User> search(String prefix, UserSearchCursor after, int limit);
+	
+	/**
+	 * Aplica los cambios e incrementa la version; si expectedVersion no es null solo escribe si coincide.
+	 * Retorna las filas modificadas (0 si no existe o la version no coincide).
+	 */
+	int update(UUID id, Long expectedVersion, UserChanges changes);
+	
+	/*
+	 * Reemplaza el hash de la contraseña solo si sigue siendo currentHash (no pisa un cambio de contraseña concurrente).
+	 * No incrementa la version ni cambia modified: el usuario no cambia, solo como esta guardada su contraseña.
+	 */
+	int replacePasswordHash(UUID id, String currentHash, String newHash);
+	
+	// Reconcilia los fonos por clave natural: elimina los que no vienen e inserta los nuevos
+	void mergePhones(UUID id, List<Phone> phones);
+	
+	int delete(UUID id, Long expectedVersion);
+	int deleteAll(Collection<UUID> ids);
 }
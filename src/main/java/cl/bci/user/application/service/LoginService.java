@@ -1,52 +1,182 @@
 package cl.bci.user.application.service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import cl.bci.common.datasource.ReadWriteRoutingDataSource;
 import cl.bci.common.dto.ErrorCode;
 import cl.bci.common.exception.CredencialesInvalidasException;
+import cl.bci.common.exception.InvalidJwtAuthenticationException;
 import cl.bci.common.exception.UserNotFoundException;
 import cl.bci.common.security.JwtUtil;
+import cl.bci.common.security.OpaqueTokens;
 import cl.bci.common.security.PasswordUtil;
+import cl.bci.common.security.VerifiedPasswords;
+import cl.bci.user.application.port.RefreshTokenRepositoryPort;
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.domain.AuthTokens;
+import cl.bci.user.domain.RefreshToken;
 import cl.bci.user.domain.User;
-import cl.bci.user.infrastructure.persistence.UserJpaRepository;
-import cl.bci.user.infrastructure.persistence.entity.UserEntity;
+import cl.bci.user.domain.UserCredentials;
+import cl.bci.user.infrastructure.persistence.RegisteredEmails;
+import cl.bci.user.infrastructure.persistence.UserCache;
 
 @Service
 public class LoginService implements LoginServicePort{
-	private final UserJpaRepository userJpaRepository;
+	private static final Logger logger = LoggerFactory.getLogger(LoginService.class);
+	
+	private final UserRespositoryPort userRepo;
 	private final PasswordUtil passwordUtil;
+	private final VerifiedPasswords verifiedPasswords;
 	private final JwtUtil jwtUtil;
+	private final UserCache userCache;
+	private final RegisteredEmails registeredEmails;
+	private final RefreshTokenRepositoryPort refreshTokens;
+	private final Duration refreshTokenTtl;
+	private final TransactionTemplate loadCredentialsTx;
+	private final TransactionTemplate writeTx;
 	
 
-	public LoginService(UserJpaRepository userJpaRepository, PasswordUtil passwordUtil, JwtUtil jwtUtil) {
-		this.userJpaRepository = userJpaRepository;
+	public LoginService(UserRespositoryPort userRepo, PasswordUtil passwordUtil, VerifiedPasswords verifiedPasswords, JwtUtil jwtUtil,
+			UserCache userCache, RegisteredEmails registeredEmails, RefreshTokenRepositoryPort refreshTokens,
+			@Value("${app.auth.refresh-token.ttl:7d}") Duration refreshTokenTtl, PlatformTransactionManager transactionManager) {
+		this.userRepo = userRepo;
 		this.passwordUtil = passwordUtil;
+		this.verifiedPasswords = verifiedPasswords;
 		this.jwtUtil = jwtUtil;
+		this.userCache = userCache;
+		this.registeredEmails = registeredEmails;
+		this.refreshTokens = refreshTokens;
+		this.refreshTokenTtl = refreshTokenTtl;
+		this.loadCredentialsTx = new TransactionTemplate(transactionManager);
+		this.loadCredentialsTx.setReadOnly(true);
+		// credenciales que quedan en cache se leen del primario: de una replica atrasada volveria un hash o estado anterior
+		if (userCache.cachesCredentials()) {
+			this.loadCredentialsTx.setName(ReadWriteRoutingDataSource.PRIMARY_READ);
+		}
+		this.writeTx = new TransactionTemplate(transactionManager);
 	}
 
+	/*
+	 * Sin transaccion propia: un correo descartado por el filtro o un acierto de cache no piden conexion.
+	 * La busqueda de credenciales corre en una transaccion de solo lectura (con replica y sin cache no carga al primario)
+	 * y solo un login exitoso escribe, su refresh token.
+	 */
 	@Override
-	public Optional<String> login(User user) {
+	public Optional<AuthTokens> login(User user) {
+		// correo que seguro no esta registrado (la mayoria en un ataque de credential stuffing): no se consulta la BD
+		if (!registeredEmails.mightExist(user.getEmail())) {
+			throw new UserNotFoundException("Usuario no encontrado");
+		}
 		
-		System.out.println("user.toString(): " + user.toString());
-		UserEntity userEntity = this.userJpaRepository.findByEmail(user.getEmail())
+		UserCredentials credentials = Optional.ofNullable(userCache.getByEmail(user.getEmail(), this::loadCredentials))
 				.orElseThrow(()-> new UserNotFoundException("Usuario no encontrado"));
 		
-		System.out.println("user.getPassword(): " + user.getPassword() + "  -  userEntity.getPassword(): " + userEntity.getPassword());
-		System.out.println("verifica password:  " + passwordUtil.matches(user.getPassword(), userEntity.getPassword()));
-		
-		if (!passwordUtil.matches(user.getPassword(), userEntity.getPassword())) {
+		// un usuario inactivo recibe la misma respuesta que una contraseña incorrecta; la contraseña se verifica
+		// siempre para que el tiempo de respuesta tampoco lo distinga
+		boolean valid = verify(credentials, user.getPassword());
+		if (!valid || !credentials.active()) {
 			throw new CredencialesInvalidasException("Usuario o contraseña incorrecta", ErrorCode.INCORRECT_CREDENTIALS);
 		}
 		
-		List<String> roles = Arrays.stream(userEntity.getRoles().split(","))
+		if (passwordUtil.needsUpgrade(credentials.passwordHash())) {
+			upgradeHash(credentials, user.getPassword());
+		}
+		
+		String refreshToken = OpaqueTokens.generate();
+		RefreshToken stored = new RefreshToken(UUID.randomUUID(), credentials.id(), credentials.email(), credentials.roles(),
+				LocalDateTime.now().plus(refreshTokenTtl), false);
+		writeTx.executeWithoutResult(status -> refreshTokens.insert(OpaqueTokens.hash(refreshToken), stored));
+		
+		return Optional.of(new AuthTokens(credentials.email(), accessToken(stored), refreshToken));
+	}
+	
+	/**
+	 * Renueva el access token con una sola lectura por clave primaria, sin leer el usuario ni calcular BCrypt.
+	 * El refresh token se rota: el presentado queda usado y se entrega uno nuevo de la misma familia.
+	 * Presentar uno ya usado significa que alguien mas lo tiene (robo o reintento malicioso): se revoca la familia
+	 * completa y el dueño debe volver a hacer login.
+	 * La familia vence en la fecha del login: rotar no la extiende, asi un token robado no mantiene la sesion para siempre.
+	 */
+	@Override
+	public AuthTokens refresh(String refreshToken) {
+		String next = OpaqueTokens.generate();
+		// la revocacion por reuso debe confirmarse, por eso no se lanza la excepcion dentro de la transaccion
+		RefreshToken rotated = writeTx.execute(status -> rotate(OpaqueTokens.hash(refreshToken), OpaqueTokens.hash(next)));
+		if (rotated == null) {
+			throw new InvalidJwtAuthenticationException("Refresh token inválido o expirado");
+		}
+		return new AuthTokens(rotated.email(), accessToken(rotated), next);
+	}
+	
+	private RefreshToken rotate(byte[] presented, byte[] next) {
+		RefreshToken current = refreshTokens.find(presented).orElse(null);
+		LocalDateTime now = LocalDateTime.now();
+		if (current == null || !current.expiresAt().isAfter(now)) {
+			return null;
+		}
+		// markUsed en 0: una renovacion concurrente con el mismo token gano la carrera, tambien es reuso
+		if (current.used() || refreshTokens.markUsed(presented) == 0) {
+			logger.warn("Reuso de refresh token del usuario {}, se revoca la familia {}", current.userId(), current.familyId());
+			refreshTokens.deleteFamily(current.familyId());
+			return null;
+		}
+		RefreshToken rotated = new RefreshToken(current.familyId(), current.userId(), current.email(), current.roles(),
+				current.expiresAt(), false);
+		refreshTokens.insert(next, rotated);
+		return rotated;
+	}
+	
+	private String accessToken(RefreshToken token) {
+		List<String> roles = Arrays.stream(token.roles().split(","))
 		        .map(String::trim)
 		        .filter(s -> !s.isEmpty())
 		        .toList();
-		
-		return Optional.of(jwtUtil.generateToken(userEntity.getEmail(), roles));
+		return jwtUtil.generateToken(token.email(), roles);
+	}
+	
+	// Una verificacion reciente de la misma contraseña contra el mismo hash evita repetir BCrypt
+	private boolean verify(UserCredentials credentials, String rawPassword) {
+		if (verifiedPasswords.contains(credentials.email(), rawPassword, credentials.passwordHash())) {
+			return true;
+		}
+		if (!passwordUtil.matches(rawPassword, credentials.passwordHash())) {
+			return false;
+		}
+		verifiedPasswords.remember(credentials.email(), rawPassword, credentials.passwordHash());
+		return true;
+	}
+	
+	private UserCredentials loadCredentials(String email) {
+		return loadCredentialsTx.execute(status -> userRepo.findCredentialsByEmail(email).orElse(null));
+	}
+	
+	/*
+	 * Solo con la contraseña en claro se puede recalcular el hash con el algoritmo y costo actuales, por eso se hace aqui.
+	 * Si el usuario cambio su contraseña mientras tanto no se escribe (el UPDATE compara el hash anterior).
+	 * Un error no hace fallar el login: se vuelve a intentar en el siguiente.
+	 */
+	private void upgradeHash(UserCredentials credentials, String rawPassword) {
+		try {
+			String upgraded = passwordUtil.encode(rawPassword);
+			writeTx.executeWithoutResult(status -> {
+				if (userRepo.replacePasswordHash(credentials.id(), credentials.passwordHash(), upgraded) > 0) {
+					userCache.evict(credentials.id(), credentials.email());
+				}
+			});
+		} catch (RuntimeException e) {
+			logger.warn("No se pudo actualizar el hash de la contraseña del usuario {}", credentials.id(), e);
+		}
 	}
 }
@@ -2,8 +2,11 @@ package cl.bci.user.application.service;
 
 import java.util.Optional;
 
+import cl.bci.user.domain.AuthTokens;
 import cl.bci.user.domain.User;
 
 public interface LoginServicePort {
-	Optional<String> login(User user);
+	Optional<AuthTokens> login(User user);
+	
+	AuthTokens refresh(String refreshToken);
 }
@@ -0,0 +1,201 @@
+package cl.bci.user.application.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cl.bci.common.exception.DatabaseException;
+import cl.bci.common.exception.EmailException;
+import cl.bci.common.exception.HashingUnavailableException;
+import cl.bci.common.helper.UuidV7;
+import cl.bci.common.security.JwtUtil;
+import cl.bci.common.security.PasswordUtil;
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.domain.User;
+import cl.bci.user.infrastructure.persistence.RegisteredEmails;
+import cl.bci.user.infrastructure.persistence.mapper.UserMapper;
+import cl.bci.user.infrastructure.rest.dto.UserImportResult;
+import cl.bci.user.infrastructure.rest.dto.UserImportResult.Status;
+import cl.bci.user.infrastructure.rest.dto.UserRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+/**
+ * Importacion masiva de usuarios desde NDJSON. El cuerpo se parsea de forma incremental y los registros
+ * validos se procesan en bloques de app.import.chunk-size: hash de contraseñas en paralelo e insercion
+ * masiva del puerto en una transaccion por bloque. Cada registro recibe su propio resultado, identificado
+ * por la linea del archivo donde empieza, y se envian cada app.import.chunk-size registros leidos.
+ */
+@Service
+public class UserImportService implements UserImportServicePort {
+	private final ObjectMapper objectMapper;
+	private final Validator validator;
+	private final PasswordUtil passwordUtil;
+	private final JwtUtil jwtUtil;
+	private final UserMapper userMapper;
+	private final UserRespositoryPort userRepo;
+	private final TransactionTemplate transactionTemplate;
+	private final RegisteredEmails registeredEmails;
+	private final int chunkSize;
+	
+	private record PendingUser(int line, UserRequest request) {}
+	
+	public UserImportService(ObjectMapper objectMapper, Validator validator, PasswordUtil passwordUtil, JwtUtil jwtUtil,
+			UserMapper userMapper, UserRespositoryPort userRepo, TransactionTemplate transactionTemplate,
+			RegisteredEmails registeredEmails, @Value("${app.import.chunk-size:500}") int chunkSize) {
+		this.objectMapper = objectMapper;
+		this.validator = validator;
+		this.passwordUtil = passwordUtil;
+		this.jwtUtil = jwtUtil;
+		this.userMapper = userMapper;
+		this.userRepo = userRepo;
+		this.transactionTemplate = transactionTemplate;
+		this.registeredEmails = registeredEmails;
+		this.chunkSize = Math.max(1, chunkSize);
+	}
+	
+	@Override
+	public void importUsers(InputStream ndjson, Consumer<List<UserImportResult>> results) throws IOException {
+		List<UserImportResult> rejected = new ArrayList<>();
+		List<PendingUser> pending = new ArrayList<>(chunkSize);
+		
+		try (MappingIterator<UserRequest> it = objectMapper.readerFor(UserRequest.class).readValues(ndjson)) {
+			while (true) {
+				int line;
+				UserRequest request;
+				try {
+					if (!it.hasNextValue()) {
+						break;
+					}
+					// el parser ya esta en el inicio del registro; las lineas en blanco no cuentan como registro
+					line = it.getParser().currentTokenLocation().getLineNr();
+					request = it.nextValue();
+				} catch (JsonProcessingException e) {
+					// con un JSON mal formado el parser pierde la posicion: se informa y se corta la importacion
+					JsonLocation location = e.getLocation();
+					rejected.add(UserImportResult.failed(location == null ? -1 : location.getLineNr(), null, Status.INVALID,
+							"JSON inválido: " + e.getOriginalMessage()));
+					break;
+				}
+				
+				String error = validate(request);
+				if (error != null) {
+					rejected.add(UserImportResult.failed(line, request.getEmail(), Status.INVALID, error));
+				} else {
+					pending.add(new PendingUser(line, request));
+				}
+				
+				// el bloque se cierra por registros leidos, asi los rechazados tambien se envian sin esperar al final
+				if (pending.size() + rejected.size() == chunkSize) {
+					results.accept(processChunk(pending, rejected));
+					pending.clear();
+					rejected.clear();
+				}
+			}
+		}
+		
+		if (!pending.isEmpty() || !rejected.isEmpty()) {
+			results.accept(processChunk(pending, rejected));
+		}
+	}
+	
+	private String validate(UserRequest request) {
+		Set<ConstraintViolation<UserRequest>> violations = validator.validate(request);
+		return violations.stream()
+				.map(v -> v.getPropertyPath() + ": " + v.getMessage())
+				.findFirst()
+				.orElse(null);
+	}
+	
+	private List<UserImportResult> processChunk(List<PendingUser> pending, List<UserImportResult> rejected) {
+		List<UserImportResult> out = new ArrayList<>(rejected);
+		
+		Map<String, PendingUser> unique = new LinkedHashMap<>();
+		for (PendingUser p : pending) {
+			if (unique.putIfAbsent(p.request().getEmail(), p) != null) {
+				out.add(UserImportResult.failed(p.line(), p.request().getEmail(), Status.DUPLICATED, "Correo repetido en la importacion"));
+			}
+		}
+		
+		// solo se consultan los correos que el filtro no puede descartar; en una importacion de correos nuevos ninguno
+		Set<String> existing = userRepo.findExistingEmails(unique.keySet().stream().filter(registeredEmails::mightExist).toList());
+		List<PendingUser> toInsert = new ArrayList<>(unique.size());
+		for (PendingUser p : unique.values()) {
+			if (existing.contains(p.request().getEmail())) {
+				out.add(UserImportResult.failed(p.line(), p.request().getEmail(), Status.DUPLICATED, "El correo ya está registrado"));
+			} else {
+				toInsert.add(p);
+			}
+		}
+		
+		if (!toInsert.isEmpty()) {
+			out.addAll(insert(toInsert));
+		}
+		
+		out.sort(Comparator.comparingInt(UserImportResult::line));
+		return out;
+	}
+	
+	private List<UserImportResult> insert(List<PendingUser> toInsert) {
+		List<String> hashes;
+		try {
+			hashes = passwordUtil.encodeAll(toInsert.stream().map(p -> p.request().getPassword()).toList());
+		} catch (HashingUnavailableException e) {
+			return toInsert.stream()
+					.map(p -> UserImportResult.failed(p.line(), p.request().getEmail(), Status.ERROR, e.getMessage()))
+					.toList();
+		}
+		
+		LocalDateTime now = LocalDateTime.now();
+		List<User> users = new ArrayList<>(toInsert.size());
+		for (int i = 0; i < toInsert.size(); i++) {
+			UserRequest request = toInsert.get(i).request();
+			request.setRoles("USER");
+			request.setPassword(hashes.get(i));
+			String token = jwtUtil.generateToken(request.getEmail(), List.of(request.getRoles()));
+			users.add(userMapper.toDomain(request, UuidV7.generate(), token, now));
+		}
+		
+		users.forEach(u -> registeredEmails.add(u.getEmail()));
+		List<UserImportResult> out = new ArrayList<>(toInsert.size());
+		try {
+			transactionTemplate.executeWithoutResult(status -> userRepo.insertAll(users));
+			for (int i = 0; i < users.size(); i++) {
+				out.add(UserImportResult.created(toInsert.get(i).line(), users.get(i).getEmail(), users.get(i).getId()));
+			}
+		} catch (EmailException | DatabaseException | DataAccessException e) {
+			// otro proceso registro alguno de los correos despues de la consulta, o algun registro viola otra
+			// restriccion: se reintenta uno a uno para que solo fallen los registros afectados
+			for (int i = 0; i < users.size(); i++) {
+				User user = users.get(i);
+				int line = toInsert.get(i).line();
+				try {
+					transactionTemplate.executeWithoutResult(status -> userRepo.insertAll(List.of(user)));
+					out.add(UserImportResult.created(line, user.getEmail(), user.getId()));
+				} catch (EmailException ex) {
+					out.add(UserImportResult.failed(line, user.getEmail(), Status.DUPLICATED, "El correo ya está registrado"));
+				} catch (DatabaseException | DataAccessException ex) {
+					out.add(UserImportResult.failed(line, user.getEmail(), Status.ERROR, "No fue posible registrar el usuario"));
+				}
+			}
+		}
+		return out;
+	}
+}
@@ -0,0 +1,12 @@
+package cl.bci.user.application.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Consumer;
+
+import cl.bci.user.infrastructure.rest.dto.UserImportResult;
+
+public interface UserImportServicePort {
+	void importUsers(InputStream ndjson, Consumer<List<UserImportResult>> results) throws IOException;
+}
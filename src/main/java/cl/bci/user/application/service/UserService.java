@@ -2,51 +2,94 @@ package cl.bci.user.application.service;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import cl.bci.common.exception.EmailException;
+import cl.bci.common.datasource.ReadWriteRoutingDataSource;
+import cl.bci.common.dto.Versioned;
+import cl.bci.common.exception.PreconditionFailedException;
+import cl.bci.common.exception.UserException;
 import cl.bci.common.exception.UserNotFoundException;
+import cl.bci.common.helper.UuidV7;
 import cl.bci.common.security.JwtUtil;
 import cl.bci.common.security.PasswordUtil;
-import cl.bci.user.infrastructure.persistence.UserJpaRepository;
-import cl.bci.user.infrastructure.persistence.entity.UserEntity;
+import cl.bci.user.application.port.RefreshTokenRepositoryPort;
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.domain.Phone;
+import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserChanges;
+import cl.bci.user.domain.UserCursor;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.domain.UserRoleEnum;
+import cl.bci.user.domain.UserSearchCursor;
+import cl.bci.user.infrastructure.persistence.RegisteredEmails;
+import cl.bci.user.infrastructure.persistence.UserCache;
 import cl.bci.user.infrastructure.persistence.mapper.UserMapper;
+import cl.bci.user.infrastructure.rest.dto.UserDeleteResponse;
+import cl.bci.user.infrastructure.rest.dto.UserPageResponse;
+import cl.bci.user.infrastructure.rest.dto.UserPatchRequest;
 import cl.bci.user.infrastructure.rest.dto.UserRequest;
 import cl.bci.user.infrastructure.rest.dto.UserResponse;
 import cl.bci.user.infrastructure.rest.mapper.UserDtoMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 @Service
 public class UserService implements UserServicePort{
-	private final UserJpaRepository userRepo;
+	static final int MAX_PAGE_SIZE = 100;
+	private static final int STREAM_CHUNK = 200;
+	static final int DELETE_CHUNK = 500;
+	private static final int MAX_BULK_DELETE = 10_000;
+	
+	private final UserRespositoryPort userRepo;
 	private final JwtUtil jwtService;
 	private final UserMapper userMapper;
 	private final UserDtoMapper userDtoMapper;
 	private final PasswordUtil passwordUtil;
-
+	private final Validator validator;
+	private final UserCache userCache;
+	private final RegisteredEmails registeredEmails;
+	private final RefreshTokenRepositoryPort refreshTokens;
+	private final TransactionTemplate readOnlyTx;
+	private final TransactionTemplate loadByIdTx;
 	
 
 
-	public UserService(UserJpaRepository userRepo, JwtUtil jwtService, UserMapper userMapper,
-			UserDtoMapper userDtoMapper, PasswordUtil passwordUtil) {
+	public UserService(UserRespositoryPort userRepo, JwtUtil jwtService, UserMapper userMapper,
+			UserDtoMapper userDtoMapper, PasswordUtil passwordUtil, Validator validator, UserCache userCache,
+			RegisteredEmails registeredEmails, RefreshTokenRepositoryPort refreshTokens, PlatformTransactionManager transactionManager) {
 		this.userRepo = userRepo;
 		this.jwtService = jwtService;
 		this.userMapper = userMapper;
 		this.userDtoMapper = userDtoMapper;
 		this.passwordUtil = passwordUtil;
+		this.validator = validator;
+		this.userCache = userCache;
+		this.registeredEmails = registeredEmails;
+		this.refreshTokens = refreshTokens;
+		this.readOnlyTx = new TransactionTemplate(transactionManager);
+		this.readOnlyTx.setReadOnly(true);
+		// lo que queda en cache se lee del primario; sin cache la lectura puede ir a la replica
+		this.loadByIdTx = new TransactionTemplate(transactionManager);
+		this.loadByIdTx.setReadOnly(true);
+		if (userCache.cachesUsers()) {
+			this.loadByIdTx.setName(ReadWriteRoutingDataSource.PRIMARY_READ);
+		}
 	}
 
 
 	@Override
 	@Transactional
 	public UserResponse createUser(UserRequest request) {
-		this.userRepo.findByEmail(request.getEmail()).ifPresent(u -> {
-			throw new EmailException("El correo " + request.getEmail() + ", ya está registrado ");
-		});
 		/**
 		 * Todo usuario que se crea tendra el ROL de Usuario
 		 * Se raliza esto para mantener la esturctura del registro que viene sin rol
@@ -60,48 +103,289 @@ public class UserService implements UserServicePort{
 		String passEncripted = this.passwordUtil.encode(request.getPassword());
 		request.setPassword(passEncripted);
 		
-		UserEntity userEntity = userMapper.toEntity(request, UUID.randomUUID(), token, LocalDateTime.now());
-		UserEntity entity =  userRepo.save(userEntity);
-		return userDtoMapper.toResponseSucces(entity);
+		User user = userMapper.toDomain(request, UuidV7.generate(), token, LocalDateTime.now());
+		
+		// antes del INSERT: apenas se confirme, el login ya no puede descartarlo como inexistente
+		registeredEmails.add(user.getEmail());
+		// el adaptador traduce el correo repetido (restriccion unica) a EmailException
+		User created = userRepo.insert(user);
+		userCache.evict(created.getId(), created.getEmail());
+		return userDtoMapper.toResponseSucces(created);
 	}
 
 
+	/**
+	 * Reemplaza los datos del usuario con un solo UPDATE, sin leerlo antes.
+	 * Con If-Match la version va en el WHERE del UPDATE.
+	 */
 	@Override
-	public UserResponse update(UUID id, UserRequest request) {
-		UserEntity existing = userRepo.findById(id)
-				.orElseThrow(() -> new UserNotFoundException("Usuario no encontrado"));
+	@Transactional
+	public Versioned<UserResponse> update(UUID id, UserRequest request, Long expectedVersion) {
+		String roles = request.getRoles() == null || request.getRoles().isEmpty() ? null : request.getRoles();
+		writeChanges(id, expectedVersion,
+				new UserPatchRequest(request.getName(), request.getPassword(), request.getActive(), roles, request.getPhones()));
+		userCache.evict(id, null);
 		
-		userDtoMapper.mapUpdate(existing, request);
+		User user = userRepo.findById(id)
+				.orElseThrow(() -> new UserNotFoundException("Usuario no encontrado"));
+		return new Versioned<>(userDtoMapper.toResponseSucces(user), user.getVersion());
+	}
+	
+	
+	/**
+	 * Actualizacion parcial: un solo UPDATE con las columnas que vienen en el patch.
+	 * Los fonos solo se leen si vienen en el patch y se reconcilian por diferencia.
+	 */
+	@Override
+	@Transactional
+	public Versioned<UserResponse> patch(UUID id, UserPatchRequest patch, Long expectedVersion) {
+		validate(patch);
+		writeChanges(id, expectedVersion, patch);
+		userCache.evict(id, null);
+		// se lee sin pasar por la cache: estos datos aun no estan confirmados
+		return loadById(id);
+	}
+	
+	private void writeChanges(UUID id, Long expectedVersion, UserPatchRequest patch) {
+		UserChanges changes = new UserChanges(
+				patch.name(),
+				patch.password() == null ? null : passwordUtil.encode(patch.password()),
+				patch.active(),
+				patch.roles() == null ? null : singleRole(patch.roles()),
+				LocalDateTime.now());
 		
-		UserEntity entity = userRepo.save(existing);
+		if (userRepo.update(id, expectedVersion, changes) == 0) {
+			throw notWritten(id, expectedVersion);
+		}
+		// los refresh tokens llevan los roles y no vuelven a mirar el usuario: un cambio de acceso obliga a hacer login
+		if (changes.passwordHash() != null || changes.active() != null || changes.roles() != null) {
+			refreshTokens.deleteByUsers(List.of(id));
+		}
 		
-		return userDtoMapper.toResponseSucces(entity);
+		if (patch.phones() != null) {
+			userRepo.mergePhones(id, userMapper.toPhones(patch.phones()));
+		}
+	}
+	
+	/*
+	 * Cada usuario tiene un solo rol de UserRoleEnum: el filtro role de GET /users compara por igualdad
+	 * contra la columna indexada, una lista como "ADMIN,USER" no coincidiria con ninguno de los dos.
+	 */
+	private static String singleRole(String roles) {
+		try {
+			return UserRoleEnum.valueOf(roles.trim().toUpperCase(Locale.ROOT)).name();
+		} catch (IllegalArgumentException e) {
+			throw new UserException("roles: debe ser uno de " + Arrays.toString(UserRoleEnum.values()));
+		}
 	}
 	
+	/*
+	 * Ninguna fila afectada: o el usuario no existe (404) o If-Match trae una version antigua (412).
+	 */
+	private RuntimeException notWritten(UUID id, Long expectedVersion) {
+		if (expectedVersion != null && userRepo.findVersion(id).isPresent()) {
+			return new PreconditionFailedException("El usuario fue modificado, la versión de If-Match no es la actual");
+		}
+		return new UserNotFoundException("Usuario no encontrado");
+	}
+	
+	/*
+	 * Se validan solo los campos presentes, con las mismas reglas de UserRequest.
+	 */
+	private void validate(UserPatchRequest patch) {
+		if (patch.isEmpty()) {
+			throw new UserException("No se enviaron campos para actualizar");
+		}
+		Set<ConstraintViolation<?>> violations = new LinkedHashSet<>();
+		if (patch.name() != null) {
+			violations.addAll(validator.validateValue(UserRequest.class, "name", patch.name()));
+		}
+		if (patch.password() != null) {
+			violations.addAll(validator.validateValue(UserRequest.class, "password", patch.password()));
+		}
+		if (patch.phones() != null) {
+			violations.addAll(validator.validateValue(UserRequest.class, "phones", patch.phones()));
+			patch.phones().forEach(phone -> violations.addAll(validator.validate(phone)));
+		}
+		violations.stream().findFirst().ifPresent(v -> {
+			throw new UserException(v.getPropertyPath() + ": " + v.getMessage());
+		});
+	}
 	
 
+	/**
+	 * Un solo DELETE por id (condicionado a la version si viene If-Match), sin cargar el agregado:
+	 * los fonos los elimina el ON DELETE CASCADE de la BD en vez de borrarlos Hibernate uno a uno.
+	 */
 	@Override
-	public void delete(UUID id) {
-		UserEntity user = userRepo.findById(id)
-				.orElseThrow(() -> new UserNotFoundException("Usuario no encontrado"));
+	@Transactional
+	public void delete(UUID id, Long expectedVersion) {
+		if (userRepo.delete(id, expectedVersion) == 0) {
+			throw notWritten(id, expectedVersion);
+		}
+		refreshTokens.deleteByUsers(List.of(id));
+		userCache.evict(id, null);
+		registeredEmails.removed(1);
+	}
+	
+	
+	/**
+	 * Elimina por bloques de DELETE_CHUNK ids, una sentencia por bloque. Los ids que no existen se ignoran.
+	 */
+	@Override
+	@Transactional
+	public UserDeleteResponse deleteAll(List<UUID> ids) {
+		if (ids == null || ids.isEmpty()) {
+			throw new UserException("Debe enviar al menos un id");
+		}
+		if (ids.size() > MAX_BULK_DELETE) {
+			throw new UserException("No se pueden eliminar más de " + MAX_BULK_DELETE + " usuarios por solicitud");
+		}
 		
-		userRepo.delete(user);
+		List<UUID> distinct = ids.stream().distinct().toList();
+		int deleted = 0;
+		for (int from = 0; from < distinct.size(); from += DELETE_CHUNK) {
+			List<UUID> chunk = distinct.subList(from, Math.min(from + DELETE_CHUNK, distinct.size()));
+			deleted += userRepo.deleteAll(chunk);
+			refreshTokens.deleteByUsers(chunk);
+		}
+		userCache.evictAll(distinct);
+		registeredEmails.removed(deleted);
+		return new UserDeleteResponse(distinct.size(), deleted);
 	}
 
 
+	/**
+	 * Disponibilidad de un correo: si el filtro dice que no esta registrado se responde sin ir a la BD,
+	 * si dice que puede estarlo se confirma con la BD (el filtro admite falsos positivos).
+	 */
+	@Override
+	public boolean emailExists(String email) {
+		return registeredEmails.mightExist(email)
+				&& Boolean.TRUE.equals(readOnlyTx.execute(status -> userRepo.existsByEmail(email)));
+	}
+	
+	
 	@Override
-	public UserResponse findById(UUID id) {
-		UserEntity entity = userRepo.findById(id)
+	public long findVersion(UUID id) {
+		return userCache.cachedVersion(id)
+				.or(() -> userRepo.findVersion(id))
 				.orElseThrow(() -> new UserNotFoundException("Usuario no encontrado: " + id));
-		
-		return userDtoMapper.toResponse(entity);
+	}
+	
+	
+	/**
+	 * Lectura por id a traves de la cache. Un acierto no abre transaccion ni pide conexion,
+	 * en un fallo las dos consultas corren en una transaccion de solo lectura (en el primario si se guarda en cache).
+	 */
+	@Override
+	public Versioned<UserResponse> findById(UUID id) {
+		return userCache.getById(id, key -> loadByIdTx.execute(status -> loadById(key)));
+	}
+	
+	private Versioned<UserResponse> loadById(UUID id) {
+		User user = userRepo.findById(id)
+				.orElseThrow(() -> new UserNotFoundException("Usuario no encontrado: " + id));
+		return new Versioned<>(userDtoMapper.toResponse(user), user.getVersion());
 	}
 
 	
+	/**
+	 * Pagina por keyset con filtros opcionales. El cursor no guarda los filtros:
+	 * para la pagina siguiente se envian los mismos filtros junto al cursor.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public UserPageResponse findPage(UserFilter filter, int limit, String cursor) {
+		checkRange("created", filter.createdFrom(), filter.createdTo());
+		checkRange("modified", filter.modifiedFrom(), filter.modifiedTo());
+		int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		UserCursor after = cursor == null || cursor.isBlank() ? null : decodeCursor(cursor);
+		
+		// se pide un registro extra solo para saber si existe una pagina siguiente
+		List<User> users = userRepo.findPage(filter, after, size + 1);
+		
+		boolean hasNext = users.size() > size;
+		List<User> page = hasNext ? users.subList(0, size) : users;
+		String nextCursor = null;
+		if (hasNext) {
+			User last = page.get(page.size() - 1);
+			nextCursor = new UserCursor(last.getCreated(), last.getId()).encode();
+		}
+		
+		return new UserPageResponse(userDtoMapper.toResponses(page), nextCursor);
+	}
+	
+	
+	/**
+	 * Busqueda por prefijo sobre nombre y correo, sin distinguir mayusculas.
+	 * Paginada por keyset como findPage: el cursor es la ultima (clave, id) entregada.
+	 */
 	@Override
-	public List<UserResponse> findAll() {
-		return userRepo.findAll().stream()
-				.map(userDtoMapper::toResponse)
-				.collect(Collectors.toList());
+	@Transactional(readOnly = true)
+	public UserPageResponse search(String query, int limit, String cursor) {
+		String prefix = UserSearchCursor.normalize(query);
+		if (prefix.isEmpty()) {
+			throw new UserException("Debe indicar el texto a buscar (q)");
+		}
+		int size = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+		UserSearchCursor after = cursor == null || cursor.isBlank() ? null : decodeSearchCursor(cursor);
+		
+		List<User> users = userRepo.search(prefix, after, size + 1);
+		
+		boolean hasNext = users.size() > size;
+		List<User> page = hasNext ? users.subList(0, size) : users;
+		String nextCursor = hasNext ? UserSearchCursor.of(page.get(page.size() - 1), prefix).encode() : null;
+		
+		return new UserPageResponse(userDtoMapper.toResponses(page), nextCursor);
+	}
+	
+	
+	/**
+	 * Busqueda inversa: los usuarios que registraron ese fono. Se comparan solo los digitos,
+	 * asi "+56" y "56" o "9 1234-5678" y "912345678" son el mismo fono.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<UserResponse> findByPhone(String countrycode, String citycode, String number) {
+		String country = Phone.digits(countrycode);
+		String city = Phone.digits(citycode);
+		String digits = Phone.digits(number);
+		if (country.isEmpty() || city.isEmpty() || digits.isEmpty()) {
+			throw new UserException("Debe indicar countrycode, citycode y number con al menos un dígito");
+		}
+		return userDtoMapper.toResponses(userRepo.findByPhone(country, city, digits));
+	}
+	
+	
+	/**
+	 * Entrega los usuarios mientras se leen, en bloques de STREAM_CHUNK: la memoria no crece con el tamaño de la tabla.
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public void streamAll(Consumer<UserResponse> consumer) {
+		userRepo.forEachChunk(STREAM_CHUNK, chunk -> userDtoMapper.toResponses(chunk).forEach(consumer));
+	}
+	
+	private UserSearchCursor decodeSearchCursor(String cursor) {
+		try {
+			return UserSearchCursor.decode(cursor);
+		} catch (IllegalArgumentException e) {
+			throw new UserException("Cursor inválido", e);
+		}
+	}
+	
+	private static void checkRange(String field, LocalDateTime from, LocalDateTime to) {
+		if (from != null && to != null && !from.isBefore(to)) {
+			throw new UserException(field + "From debe ser anterior a " + field + "To");
+		}
+	}
+	
+	private UserCursor decodeCursor(String cursor) {
+		try {
+			return UserCursor.decode(cursor);
+		} catch (IllegalArgumentException e) {
+			throw new UserException("Cursor inválido", e);
+		}
 	}
 }
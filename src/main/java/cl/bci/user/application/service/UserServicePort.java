@@ -2,14 +2,27 @@ package cl.bci.user.application.service;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
+import cl.bci.common.dto.Versioned;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.infrastructure.rest.dto.UserDeleteResponse;
+import cl.bci.user.infrastructure.rest.dto.UserPageResponse;
+import cl.bci.user.infrastructure.rest.dto.UserPatchRequest;
 import cl.bci.user.infrastructure.rest.dto.UserRequest;
 import cl.bci.user.infrastructure.rest.dto.UserResponse;
 
 public interface UserServicePort {
 	UserResponse createUser(UserRequest request);
-	UserResponse update(UUID id, UserRequest request);
-	void delete(UUID id);
-	UserResponse findById(UUID id);
-	List<UserResponse> findAll();
+	Versioned<UserResponse> update(UUID id, UserRequest request, Long expectedVersion);
+	Versioned<UserResponse> patch(UUID id, UserPatchRequest patch, Long expectedVersion);
+	void delete(UUID id, Long expectedVersion);
+	UserDeleteResponse deleteAll(List<UUID> ids);
+	Versioned<UserResponse> findById(UUID id);
+	long findVersion(UUID id);
+	boolean emailExists(String email);
+	UserPageResponse findPage(UserFilter filter, int limit, String cursor);
+	UserPageResponse search(String query, int limit, String cursor);
+	List<UserResponse> findByPhone(String countrycode, String citycode, String number);
+	void streamAll(Consumer<UserResponse> consumer);
 }
@@ -0,0 +1,8 @@
+package cl.bci.user.domain;
+
+// Resultado de un login o de una renovacion: access token (JWT) y el refresh token para renovarlo
+public record AuthTokens(
+		String email,
+		String accessToken,
+		String refreshToken
+) {}
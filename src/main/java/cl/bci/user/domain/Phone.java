@@ -1,6 +1,10 @@
 package cl.bci.user.domain;
 
+import java.util.regex.Pattern;
+
 public class Phone {
+	private static final Pattern NON_DIGITS = Pattern.compile("[^0-9]");
+	
 	private Long id;
 	private String number;
 	private String citycode;
@@ -37,5 +41,27 @@ public class Phone {
 	public void setContrycode(String contrycode) {
 		this.contrycode = contrycode;
 	}
+	
+	// Un fono se identifica por numero, ciudad y pais; el id es solo de la BD
+	public String naturalKey() {
+		return naturalKey(number, citycode, contrycode);
+	}
+	
+	public static String naturalKey(String number, String citycode, String countrycode) {
+		return number + '|' + citycode + '|' + countrycode;
+	}
+	
+	// La busqueda por fono compara solo los digitos, igual que las columnas *_digits de la BD
+	public static String digits(String value) {
+		return value == null ? "" : NON_DIGITS.matcher(value).replaceAll("");
+	}
+	
+	public static String lookupKey(String countrycode, String citycode, String number) {
+		return digits(countrycode) + '|' + digits(citycode) + '|' + digits(number);
+	}
+	
+	public String lookupKey() {
+		return lookupKey(contrycode, citycode, number);
+	}
 
 }
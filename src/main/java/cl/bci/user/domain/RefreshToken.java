@@ -0,0 +1,19 @@
+package cl.bci.user.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Refresh token guardado (la BD solo tiene su hash SHA-256). Lleva el correo y los roles del usuario
+ * para emitir el access token sin leer la tabla de usuarios; por eso los cambios de roles, estado
+ * o contraseña y la eliminacion del usuario revocan sus refresh tokens.
+ * Los tokens de una misma cadena de rotaciones comparten familyId: reusar uno ya rotado revoca la familia.
+ */
+public record RefreshToken(
+		UUID familyId,
+		UUID userId,
+		String email,
+		String roles,
+		LocalDateTime expiresAt,
+		boolean used
+) {}
@@ -16,6 +16,7 @@ public class User {
 	private String token;
 	private boolean isActive;
 	private String roles;
+	private long version;
 
 	public User() {	}
 
@@ -122,11 +123,19 @@ public class User {
 		this.roles = roles;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
 	@Override
 	public String toString() {
 		return "User [id=" + id + ", name=" + name + ", email=" + email + ", password=" + password + ", phones="
 				+ phones + ", created=" + created + ", modified=" + modified + ", lastLogin=" + lastLogin + ", token="
-				+ token + ", isActive=" + isActive + ", roles=" + roles + "]";
+				+ token + ", isActive=" + isActive + ", roles=" + roles + ", version=" + version + "]";
 	}
 	
 	
@@ -0,0 +1,15 @@
+package cl.bci.user.domain;
+
+import java.time.LocalDateTime;
+
+/**
+ * Columnas a modificar de un usuario, los campos en null no se tocan.
+ * La contraseña ya viene con hash.
+ */
+public record UserChanges(
+		String name,
+		String passwordHash,
+		Boolean active,
+		String roles,
+		LocalDateTime modified
+) {}
@@ -0,0 +1,14 @@
+package cl.bci.user.domain;
+
+import java.util.UUID;
+
+/**
+ * Datos minimos para autenticar a un usuario. Inmutable para poder compartirse desde la cache.
+ */
+public record UserCredentials(
+		UUID id,
+		String email,
+		String passwordHash,
+		String roles,
+		boolean active
+) {}
@@ -0,0 +1,50 @@
+package cl.bci.user.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Posicion de una pagina dentro del listado ordenado por (created, id).
+ * Se entrega al cliente como un texto opaco en base64url.
+ */
+public record UserCursor(LocalDateTime created, UUID id) {
+	private static final String SEPARATOR = "|";
+	
+	// El id como BINARY(16) en la BD: se comparan los bytes sin signo
+	public static final Comparator<UUID> ID_ORDER = Comparator
+			.comparing((UUID id) -> id.getMostSignificantBits(), Long::compareUnsigned)
+			.thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+	
+	// Mismo orden que la BD: created y luego el id
+	public static final Comparator<UserCursor> ORDER = Comparator
+			.comparing(UserCursor::created)
+			.thenComparing(UserCursor::id, ID_ORDER);
+
+	public UserCursor {
+		// La BD guarda microsegundos, el cursor no debe llevar mas precision que eso
+		created = created.truncatedTo(ChronoUnit.MICROS);
+	}
+
+	public String encode() {
+		String raw = created + SEPARATOR + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static UserCursor decode(String value) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+			int idx = raw.indexOf(SEPARATOR);
+			if (idx < 0) {
+				throw new IllegalArgumentException("Cursor inválido");
+			}
+			return new UserCursor(LocalDateTime.parse(raw.substring(0, idx)), UUID.fromString(raw.substring(idx + 1)));
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Cursor inválido", e);
+		}
+	}
+}
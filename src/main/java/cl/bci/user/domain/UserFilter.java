@@ -0,0 +1,40 @@
+package cl.bci.user.domain;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+
+/**
+ * Filtros opcionales del listado de usuarios; un campo null no filtra.
+ * Los rangos de fecha incluyen el inicio y excluyen el fin.
+ */
+public record UserFilter(
+		Boolean active,
+		String role,
+		LocalDateTime createdFrom,
+		LocalDateTime createdTo,
+		LocalDateTime modifiedFrom,
+		LocalDateTime modifiedTo
+) {
+	public static final UserFilter NONE = new UserFilter(null, null, null, null, null, null);
+
+	public UserFilter {
+		// cada usuario guarda un solo rol en mayusculas (UserService rechaza listas), el filtro es por igualdad
+		role = role == null || role.isBlank() ? null : role.trim().toUpperCase(Locale.ROOT);
+	}
+
+	public boolean isEmpty() {
+		return equals(NONE);
+	}
+
+	// El mismo predicado que arman los adaptadores con BD, para el adaptador en memoria
+	public boolean matches(User user) {
+		return (active == null || active == user.isActive())
+				&& (role == null || role.equals(user.getRoles()))
+				&& inRange(user.getCreated(), createdFrom, createdTo)
+				&& inRange(user.getModified(), modifiedFrom, modifiedTo);
+	}
+
+	private static boolean inRange(LocalDateTime value, LocalDateTime from, LocalDateTime to) {
+		return (from == null || !value.isBefore(from)) && (to == null || value.isBefore(to));
+	}
+}
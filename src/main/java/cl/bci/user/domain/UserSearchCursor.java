@@ -0,0 +1,84 @@
+package cl.bci.user.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Posicion de una pagina de la busqueda por prefijo, ordenada por (clave, id).
+ * La clave de un usuario es su nombre en minusculas si empieza con el prefijo, si no su correo en minusculas.
+ * Se entrega al cliente como un texto opaco en base64url.
+ */
+public record UserSearchCursor(String key, UUID id) {
+	private static final char SEPARATOR = '|';
+
+	public static final Comparator<UserSearchCursor> ORDER = Comparator
+			.comparing(UserSearchCursor::key)
+			.thenComparing(UserSearchCursor::id, UserCursor.ID_ORDER);
+
+	/*
+	 * Mismo criterio que las columnas name_lc y email_lc de la BD, LOWER(TRIM(col)).
+	 * TRIM de SQL solo quita espacios, no el resto de los caracteres de control que quita String.trim().
+	 */
+	public static String normalize(String value) {
+		if (value == null) {
+			return "";
+		}
+		int start = 0;
+		int end = value.length();
+		while (start < end && value.charAt(start) == ' ') {
+			start++;
+		}
+		while (end > start && value.charAt(end - 1) == ' ') {
+			end--;
+		}
+		return value.substring(start, end).toLowerCase(Locale.ROOT);
+	}
+
+	/*
+	 * Limite superior exclusivo del rango de claves que empiezan con el prefijo: col >= prefix AND col < upperBound.
+	 * A diferencia de un LIKE con parametro, el rango siempre puede recorrer el indice.
+	 */
+	public static String upperBound(String prefix) {
+		return prefix + Character.MAX_VALUE;
+	}
+
+	public static boolean matches(String value, String prefix) {
+		return normalize(value).startsWith(prefix);
+	}
+
+	public static UserSearchCursor of(User user, String prefix) {
+		return of(user.getId(), user.getName(), user.getEmail(), prefix);
+	}
+
+	public static UserSearchCursor of(UUID id, String name, String email, String prefix) {
+		String key = normalize(name);
+		return new UserSearchCursor(key.startsWith(prefix) ? key : normalize(email), id);
+	}
+
+	// Primera pagina: antes de cualquier clave con el prefijo
+	public static UserSearchCursor start(String prefix) {
+		return new UserSearchCursor(prefix, new UUID(0, 0));
+	}
+
+	public static Comparator<User> order(String prefix) {
+		return Comparator.comparing((User u) -> of(u, prefix), ORDER);
+	}
+
+	public String encode() {
+		String raw = id + String.valueOf(SEPARATOR) + key;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public static UserSearchCursor decode(String value) {
+		String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+		int idx = raw.indexOf(SEPARATOR);
+		if (idx < 0) {
+			throw new IllegalArgumentException("Cursor inválido");
+		}
+		// el id va primero porque la clave puede contener el separador
+		return new UserSearchCursor(raw.substring(idx + 1), UUID.fromString(raw.substring(0, idx)));
+	}
+}
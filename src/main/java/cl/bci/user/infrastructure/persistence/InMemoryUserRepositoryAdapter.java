@@ -0,0 +1,384 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import cl.bci.common.exception.EmailException;
+import cl.bci.common.exception.UserNotFoundException;
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.domain.Phone;
+import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserChanges;
+import cl.bci.user.domain.UserCredentials;
+import cl.bci.user.domain.UserCursor;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.domain.UserSearchCursor;
+
+/**
+ * Adaptador en memoria para pruebas de carga de la capa web y de autenticacion sin BD.
+ * Sin locks: cada usuario se guarda como una copia inmutable en la practica (se reemplaza, nunca se modifica)
+ * y las escrituras condicionadas a la version son atomicas por clave (compute de ConcurrentHashMap).
+ * El correo es unico gracias al indice email -> id, que se reserva con putIfAbsent antes de publicar al usuario.
+ * La busqueda por prefijo usa dos indices ordenados (nombre y correo en minusculas, id) y la busqueda por fono
+ * un indice digitos del fono -> ids; todos se mantienen en cada escritura.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.persistence.adapter", havingValue = "memory")
+public class InMemoryUserRepositoryAdapter implements UserRespositoryPort {
+	private final ConcurrentHashMap<UUID, User> users = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, UUID> emails = new ConcurrentHashMap<>();
+	private final ConcurrentSkipListMap<UserCursor, UUID> ordered = new ConcurrentSkipListMap<>(UserCursor.ORDER);
+	private final ConcurrentSkipListMap<UserSearchCursor, UUID> byName = new ConcurrentSkipListMap<>(UserSearchCursor.ORDER);
+	private final ConcurrentSkipListMap<UserSearchCursor, UUID> byEmail = new ConcurrentSkipListMap<>(UserSearchCursor.ORDER);
+	private final ConcurrentHashMap<String, Set<UUID>> phoneOwners = new ConcurrentHashMap<>();
+	private final AtomicLong phoneIds = new AtomicLong();
+	
+	public InMemoryUserRepositoryAdapter() {
+	}
+	
+	/*
+	 * Si hay una BD configurada se copian sus usuarios al iniciar (los de data.sql),
+	 * asi el login funciona igual que con los otros adaptadores.
+	 */
+	@Autowired
+	public InMemoryUserRepositoryAdapter(ObjectProvider<JdbcClient> jdbcClient,
+			@Value("${app.persistence.memory.seed-from-db:true}") boolean seedFromDb) {
+		JdbcClient client = seedFromDb ? jdbcClient.getIfAvailable() : null;
+		if (client != null) {
+			seed(client);
+		}
+	}
+	
+	private void seed(JdbcClient client) {
+		JdbcUserRepositoryAdapter.loadAll(client).forEach(user -> {
+			emails.put(user.getEmail(), user.getId());
+			publish(user, user.getVersion());
+		});
+	}
+	
+	@Override
+	public User insert(User user) {
+		if (emails.putIfAbsent(user.getEmail(), user.getId()) != null) {
+			throw new EmailException("El correo " + user.getEmail() + ", ya está registrado ");
+		}
+		publish(user, 0);
+		return copy(users.get(user.getId()));
+	}
+	
+	@Override
+	public void insertAll(List<User> batch) {
+		List<User> reserved = new ArrayList<>(batch.size());
+		for (User user : batch) {
+			if (emails.putIfAbsent(user.getEmail(), user.getId()) != null) {
+				// todo o nada: se liberan los correos ya reservados por este lote
+				reserved.forEach(u -> emails.remove(u.getEmail(), u.getId()));
+				throw new EmailException("Uno de los correos ya está registrado");
+			}
+			reserved.add(user);
+		}
+		batch.forEach(user -> publish(user, 0));
+	}
+	
+	private void publish(User user, long version) {
+		User stored = copy(user);
+		stored.setVersion(version);
+		stored.getPhones().forEach(p -> p.setId(phoneIds.incrementAndGet()));
+		users.put(stored.getId(), stored);
+		ordered.put(new UserCursor(stored.getCreated(), stored.getId()), stored.getId());
+		byName.put(nameKey(stored), stored.getId());
+		byEmail.put(emailKey(stored), stored.getId());
+		indexPhones(stored.getId(), phoneKeys(stored));
+	}
+	
+	private static Set<String> phoneKeys(User user) {
+		return user.getPhones().stream().map(Phone::lookupKey).collect(Collectors.toSet());
+	}
+	
+	// compute por fono: agregar y quitar un id no se pisan con la eliminacion del conjunto vacio
+	private void indexPhones(UUID id, Collection<String> keys) {
+		keys.forEach(key -> phoneOwners.compute(key, (k, ids) -> {
+			Set<UUID> owners = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+			owners.add(id);
+			return owners;
+		}));
+	}
+	
+	private void unindexPhones(UUID id, Collection<String> keys) {
+		keys.forEach(key -> phoneOwners.computeIfPresent(key, (k, ids) -> {
+			ids.remove(id);
+			return ids.isEmpty() ? null : ids;
+		}));
+	}
+	
+	private static UserSearchCursor nameKey(User user) {
+		return new UserSearchCursor(UserSearchCursor.normalize(user.getName()), user.getId());
+	}
+	
+	private static UserSearchCursor emailKey(User user) {
+		return new UserSearchCursor(UserSearchCursor.normalize(user.getEmail()), user.getId());
+	}
+	
+	@Override
+	public Optional<User> findById(UUID id) {
+		return Optional.ofNullable(users.get(id)).map(InMemoryUserRepositoryAdapter::copy);
+	}
+	
+	@Override
+	public Optional<Long> findVersion(UUID id) {
+		return Optional.ofNullable(users.get(id)).map(User::getVersion);
+	}
+	
+	@Override
+	public Optional<UserCredentials> findCredentialsByEmail(String email) {
+		return Optional.ofNullable(emails.get(email))
+				.map(users::get)
+				.map(u -> new UserCredentials(u.getId(), u.getEmail(), u.getPassword(), u.getRoles(), u.isActive()));
+	}
+	
+	@Override
+	public boolean existsByEmail(String email) {
+		return emails.containsKey(email);
+	}
+	
+	@Override
+	public Set<String> findExistingEmails(Collection<String> candidates) {
+		Set<String> existing = new HashSet<>();
+		for (String email : candidates) {
+			if (emails.containsKey(email)) {
+				existing.add(email);
+			}
+		}
+		return existing;
+	}
+	
+	@Override
+	public List<User> findByPhone(String countrycode, String citycode, String number) {
+		String key = Phone.lookupKey(countrycode, citycode, number);
+		return phoneOwners.getOrDefault(key, Set.of()).stream()
+				.map(users::get)
+				// el indice puede ir un instante detras de un merge o un borrado concurrente
+				.filter(user -> user != null && user.getPhones().stream().anyMatch(p -> p.lookupKey().equals(key)))
+				.sorted(Comparator.comparing((User u) -> new UserCursor(u.getCreated(), u.getId()), UserCursor.ORDER))
+				.map(InMemoryUserRepositoryAdapter::copy)
+				.toList();
+	}
+	
+	/*
+	 * El rango de created acota el recorrido del indice ordenado; el resto de los filtros se evalua por usuario.
+	 */
+	@Override
+	public List<User> findPage(UserFilter filter, UserCursor after, int limit) {
+		UserCursor start = after;
+		if (filter.createdFrom() != null) {
+			UserCursor lower = new UserCursor(filter.createdFrom(), new UUID(0, 0));
+			start = start == null || UserCursor.ORDER.compare(lower, start) > 0 ? lower : start;
+		}
+		NavigableMap<UserCursor, UUID> from = start == null ? ordered : ordered.tailMap(start, false);
+		List<User> page = new ArrayList<>(limit);
+		for (Map.Entry<UserCursor, UUID> entry : from.entrySet()) {
+			if (page.size() == limit
+					|| filter.createdTo() != null && !entry.getKey().created().isBefore(filter.createdTo())) {
+				break;
+			}
+			// un borrado concurrente puede dejar el indice un instante detras del mapa
+			User user = users.get(entry.getValue());
+			if (user != null && filter.matches(user)) {
+				page.add(copy(user));
+			}
+		}
+		return page;
+	}
+	
+	@Override
+	public void forEachChunk(int chunkSize, Consumer<List<User>> consumer) {
+		List<User> chunk = new ArrayList<>(chunkSize);
+		for (UUID id : ordered.values()) {
+			User user = users.get(id);
+			if (user == null) {
+				continue;
+			}
+			chunk.add(copy(user));
+			if (chunk.size() == chunkSize) {
+				consumer.accept(chunk);
+				chunk = new ArrayList<>(chunkSize);
+			}
+		}
+		if (!chunk.isEmpty()) {
+			consumer.accept(chunk);
+		}
+	}
+	
+	@Override
+	public void forEachEmail(Consumer<String> consumer) {
+		emails.keySet().forEach(consumer);
+	}
+	
+	/*
+	 * Cada rama recorre su indice desde el cursor hasta el final del prefijo. Se descartan las entradas
+	 * que una escritura concurrente dejo atras y, en la rama del correo, los que ya aparecen por el nombre.
+	 */
+	@Override
+	public List<User> search(String prefix, UserSearchCursor after, int limit) {
+		UserSearchCursor from = after == null ? UserSearchCursor.start(prefix) : after;
+		UserSearchCursor to = UserSearchCursor.start(UserSearchCursor.upperBound(prefix));
+		
+		List<User> found = new ArrayList<>(scan(byName, from, to, limit,
+				(key, user) -> UserSearchCursor.normalize(user.getName()).equals(key.key())));
+		found.addAll(scan(byEmail, from, to, limit, (key, user) -> !UserSearchCursor.matches(user.getName(), prefix)));
+		return found.stream()
+				.sorted(UserSearchCursor.order(prefix))
+				.limit(limit)
+				.toList();
+	}
+	
+	private List<User> scan(NavigableMap<UserSearchCursor, UUID> index, UserSearchCursor from, UserSearchCursor to,
+			int limit, BiPredicate<UserSearchCursor, User> accept) {
+		List<User> branch = new ArrayList<>(limit);
+		for (Map.Entry<UserSearchCursor, UUID> entry : index.subMap(from, false, to, false).entrySet()) {
+			if (branch.size() == limit) {
+				break;
+			}
+			User user = users.get(entry.getValue());
+			if (user != null && accept.test(entry.getKey(), user)) {
+				branch.add(copy(user));
+			}
+		}
+		return branch;
+	}
+	
+	@Override
+	public int update(UUID id, Long expectedVersion, UserChanges changes) {
+		AtomicInteger updated = new AtomicInteger();
+		users.computeIfPresent(id, (key, current) -> {
+			if (expectedVersion != null && current.getVersion() != expectedVersion) {
+				return current;
+			}
+			User next = copy(current);
+			if (changes.name() != null) {
+				next.setName(changes.name());
+			}
+			if (changes.passwordHash() != null) {
+				next.setPassword(changes.passwordHash());
+			}
+			if (changes.active() != null) {
+				next.setActive(changes.active());
+			}
+			if (changes.roles() != null) {
+				next.setRoles(changes.roles());
+			}
+			next.setModified(changes.modified());
+			next.setVersion(current.getVersion() + 1);
+			// dentro del compute: dos cambios de nombre del mismo usuario no pueden cruzarse en el indice
+			if (!next.getName().equals(current.getName())) {
+				byName.put(nameKey(next), id);
+				byName.remove(nameKey(current), id);
+			}
+			updated.set(1);
+			return next;
+		});
+		return updated.get();
+	}
+	
+	@Override
+	public int replacePasswordHash(UUID id, String currentHash, String newHash) {
+		AtomicInteger updated = new AtomicInteger();
+		users.computeIfPresent(id, (key, current) -> {
+			if (!current.getPassword().equals(currentHash)) {
+				return current;
+			}
+			User next = copy(current);
+			next.setPassword(newHash);
+			updated.set(1);
+			return next;
+		});
+		return updated.get();
+	}
+	
+	@Override
+	public void mergePhones(UUID id, List<Phone> phones) {
+		User merged = users.computeIfPresent(id, (key, current) -> {
+			Map<String, Phone> byKey = new LinkedHashMap<>();
+			phones.forEach(p -> byKey.putIfAbsent(p.naturalKey(), p));
+			
+			User next = copy(current);
+			next.getPhones().removeIf(p -> byKey.remove(p.naturalKey()) == null);
+			byKey.values().forEach(p -> next.getPhones()
+					.add(new Phone(phoneIds.incrementAndGet(), p.getNumber(), p.getCitycode(), p.getContrycode())));
+			
+			Set<String> before = phoneKeys(current);
+			Set<String> after = phoneKeys(next);
+			indexPhones(id, after.stream().filter(k -> !before.contains(k)).toList());
+			unindexPhones(id, before.stream().filter(k -> !after.contains(k)).toList());
+			return next;
+		});
+		if (merged == null) {
+			throw new UserNotFoundException("Usuario no encontrado");
+		}
+	}
+	
+	@Override
+	public int delete(UUID id, Long expectedVersion) {
+		User[] removed = new User[1];
+		users.computeIfPresent(id, (key, current) -> {
+			if (expectedVersion != null && current.getVersion() != expectedVersion) {
+				return current;
+			}
+			removed[0] = current;
+			return null;
+		});
+		if (removed[0] == null) {
+			return 0;
+		}
+		ordered.remove(new UserCursor(removed[0].getCreated(), id));
+		byName.remove(nameKey(removed[0]), id);
+		byEmail.remove(emailKey(removed[0]), id);
+		unindexPhones(id, phoneKeys(removed[0]));
+		emails.remove(removed[0].getEmail(), id);
+		return 1;
+	}
+	
+	@Override
+	public int deleteAll(Collection<UUID> ids) {
+		int deleted = 0;
+		for (UUID id : ids) {
+			deleted += delete(id, null);
+		}
+		return deleted;
+	}
+	
+	// los usuarios guardados nunca salen del adaptador: se entregan y se reciben copias
+	private static User copy(User user) {
+		List<Phone> phones = user.getPhones() == null
+				? new ArrayList<>()
+				: user.getPhones().stream()
+						.map(p -> new Phone(p.getId(), p.getNumber(), p.getCitycode(), p.getContrycode()))
+						.collect(Collectors.toCollection(ArrayList::new));
+		User copy = new User(user.getId(), user.getName(), user.getEmail(), user.getPassword(), phones,
+				user.getCreated(), user.getModified(), user.getLastLogin(), user.getToken(), user.isActive(), user.getRoles());
+		copy.setVersion(user.getVersion());
+		return copy;
+	}
+}
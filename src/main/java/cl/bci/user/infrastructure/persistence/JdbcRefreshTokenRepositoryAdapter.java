@@ -0,0 +1,97 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import cl.bci.common.helper.UuidV7;
+import cl.bci.user.application.port.RefreshTokenRepositoryPort;
+import cl.bci.user.domain.RefreshToken;
+
+/**
+ * Tabla refresh_token en la BD principal, con cualquier adaptador de usuarios: no tiene FK a users
+ * (con sharded o memory los usuarios no estan ahi). Cada operacion es una sola sentencia por la clave primaria
+ * o por un indice (familia, usuario, vencimiento).
+ */
+@Repository
+public class JdbcRefreshTokenRepositoryAdapter implements RefreshTokenRepositoryPort {
+	private static final RowMapper<RefreshToken> ROW = (rs, rowNum) -> new RefreshToken(
+			UuidV7.fromBytes(rs.getBytes("family_id")),
+			UuidV7.fromBytes(rs.getBytes("user_id")),
+			rs.getString("email"),
+			rs.getString("roles"),
+			rs.getTimestamp("expires_at").toLocalDateTime(),
+			rs.getBoolean("used"));
+	
+	private final JdbcClient jdbcClient;
+	
+	public JdbcRefreshTokenRepositoryAdapter(JdbcClient jdbcClient) {
+		this.jdbcClient = jdbcClient;
+	}
+	
+	@Override
+	public void insert(byte[] tokenHash, RefreshToken token) {
+		jdbcClient.sql("""
+				INSERT INTO refresh_token (token_hash, family_id, user_id, email, roles, expires_at, used)
+				VALUES (?, ?, ?, ?, ?, ?, ?)""")
+				.param(tokenHash)
+				.param(UuidV7.toBytes(token.familyId()))
+				.param(UuidV7.toBytes(token.userId()))
+				.param(token.email())
+				.param(token.roles())
+				.param(Timestamp.valueOf(token.expiresAt()))
+				.param(token.used())
+				.update();
+	}
+	
+	@Override
+	public Optional<RefreshToken> find(byte[] tokenHash) {
+		return jdbcClient.sql("""
+				SELECT family_id, user_id, email, roles, expires_at, used
+				FROM refresh_token WHERE token_hash = ?""")
+				.param(tokenHash)
+				.query(ROW)
+				.optional();
+	}
+	
+	@Override
+	public int markUsed(byte[] tokenHash) {
+		return jdbcClient.sql("UPDATE refresh_token SET used = TRUE WHERE token_hash = ? AND used = FALSE")
+				.param(tokenHash)
+				.update();
+	}
+	
+	@Override
+	public int deleteFamily(UUID familyId) {
+		return jdbcClient.sql("DELETE FROM refresh_token WHERE family_id = ?")
+				.param(UuidV7.toBytes(familyId))
+				.update();
+	}
+	
+	@Override
+	public int deleteByUsers(Collection<UUID> userIds) {
+		if (userIds.isEmpty()) {
+			return 0;
+		}
+		return jdbcClient.sql("DELETE FROM refresh_token WHERE user_id IN (:ids)")
+				.param("ids", userIds.stream().map(UuidV7::toBytes).toList())
+				.update();
+	}
+	
+	// Por bloques sobre idx_refresh_token_expires: cada DELETE toca pocas filas y no bloquea la tabla
+	@Override
+	public int deleteExpired(LocalDateTime now, int batchSize) {
+		return jdbcClient.sql("""
+				DELETE FROM refresh_token WHERE token_hash IN (
+					SELECT token_hash FROM refresh_token WHERE expires_at < ? ORDER BY expires_at LIMIT ?)""")
+				.param(Timestamp.valueOf(now))
+				.param(batchSize)
+				.update();
+	}
+}
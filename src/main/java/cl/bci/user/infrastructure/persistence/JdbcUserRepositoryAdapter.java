@@ -0,0 +1,390 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.stereotype.Repository;
+
+import cl.bci.common.exception.UserNotFoundException;
+import cl.bci.common.helper.UuidV7;
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.domain.Phone;
+import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserChanges;
+import cl.bci.user.domain.UserCredentials;
+import cl.bci.user.domain.UserCursor;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.domain.UserSearchCursor;
+
+/**
+ * Adaptador sobre JdbcClient: SQL directo, sin contexto de persistencia ni dirty checking.
+ * Los ids viajan como BINARY(16) (UuidV7.toBytes) y las inserciones reutilizan UserBatchJdbcRepository.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.persistence.adapter", havingValue = "jdbc")
+public class JdbcUserRepositoryAdapter implements UserRespositoryPort {
+	private static final int FETCH_SIZE = 500;
+	
+	static final String USER_COLUMNS = "id, name, email, password, created, modified, last_login, token, is_active, roles, version";
+	static final String PHONE_COLUMNS = "id, number, citycode, countrycode, user_id";
+	
+	// usuario sin fonos, se agregan despues con una consulta IN por bloque
+	static final RowMapper<User> USER_ROW = (rs, rowNum) -> {
+		User user = new User(
+				uuid(rs, "id"),
+				rs.getString("name"),
+				rs.getString("email"),
+				rs.getString("password"),
+				new ArrayList<>(),
+				rs.getTimestamp("created").toLocalDateTime(),
+				rs.getTimestamp("modified").toLocalDateTime(),
+				rs.getTimestamp("last_login").toLocalDateTime(),
+				rs.getString("token"),
+				rs.getBoolean("is_active"),
+				rs.getString("roles")
+			);
+		user.setVersion(rs.getLong("version"));
+		return user;
+	};
+	
+	static final RowMapper<PhoneOfUser> PHONE_ROW = (rs, rowNum) -> new PhoneOfUser(
+			uuid(rs, "user_id"),
+			new Phone(rs.getLong("id"), rs.getString("number"), rs.getString("citycode"), rs.getString("countrycode")));
+	
+	record PhoneOfUser(UUID userId, Phone phone) {}
+	
+	private final JdbcClient jdbcClient;
+	private final JdbcClient streamingClient;
+	private final UserBatchJdbcRepository batchRepo;
+	
+	public JdbcUserRepositoryAdapter(JdbcClient jdbcClient, JdbcTemplate jdbcTemplate, UserBatchJdbcRepository batchRepo) {
+		this.jdbcClient = jdbcClient;
+		this.batchRepo = batchRepo;
+		
+		// el recorrido completo lee con cursor (fetch size) en vez de traer todo el resultado a memoria
+		JdbcTemplate streaming = new JdbcTemplate(jdbcTemplate.getDataSource());
+		streaming.setFetchSize(FETCH_SIZE);
+		this.streamingClient = JdbcClient.create(streaming);
+	}
+	
+	@Override
+	public User insert(User user) {
+		try {
+			batchRepo.insertAll(List.of(user));
+		} catch (DataIntegrityViolationException e) {
+			throw PersistenceErrors.translate(e, user.getEmail());
+		}
+		user.setVersion(0);
+		return user;
+	}
+	
+	@Override
+	public void insertAll(List<User> users) {
+		try {
+			batchRepo.insertAll(users);
+		} catch (DataIntegrityViolationException e) {
+			throw PersistenceErrors.translate(e, null);
+		}
+	}
+	
+	@Override
+	public Optional<User> findById(UUID id) {
+		Optional<User> user = jdbcClient.sql("SELECT " + USER_COLUMNS + " FROM users WHERE id = ?")
+				.param(UuidV7.toBytes(id))
+				.query(USER_ROW)
+				.optional();
+		user.ifPresent(u -> withPhones(List.of(u)));
+		return user;
+	}
+	
+	@Override
+	public Optional<Long> findVersion(UUID id) {
+		return jdbcClient.sql("SELECT version FROM users WHERE id = ?")
+				.param(UuidV7.toBytes(id))
+				.query(Long.class)
+				.optional();
+	}
+	
+	@Override
+	public Optional<UserCredentials> findCredentialsByEmail(String email) {
+		return jdbcClient.sql("SELECT id, email, password, roles, is_active FROM users WHERE email = ?")
+				.param(email)
+				.query((rs, rowNum) -> new UserCredentials(
+						uuid(rs, "id"), rs.getString("email"), rs.getString("password"),
+						rs.getString("roles"), rs.getBoolean("is_active")))
+				.optional();
+	}
+	
+	@Override
+	public boolean existsByEmail(String email) {
+		return jdbcClient.sql("SELECT COUNT(*) FROM users WHERE email = ?")
+				.param(email)
+				.query(Integer.class)
+				.single() > 0;
+	}
+	
+	@Override
+	public Set<String> findExistingEmails(Collection<String> emails) {
+		return batchRepo.findExistingEmails(emails);
+	}
+	
+	@Override
+	public List<User> findByPhone(String countrycode, String citycode, String number) {
+		return withPhones(jdbcClient.sql("""
+				SELECT %s FROM users
+				WHERE id IN (
+					SELECT user_id FROM phone
+					WHERE countrycode_digits = ? AND citycode_digits = ? AND number_digits = ?)
+				ORDER BY created, id
+				""".formatted(USER_COLUMNS))
+				.param(countrycode)
+				.param(citycode)
+				.param(number)
+				.query(USER_ROW)
+				.list());
+	}
+	
+	/*
+	 * El WHERE lleva solo los filtros presentes y el keyset, en una sola sentencia ordenada por (created, id).
+	 */
+	@Override
+	public List<User> findPage(UserFilter filter, UserCursor after, int limit) {
+		List<String> where = new ArrayList<>();
+		Map<String, Object> params = new LinkedHashMap<>();
+		if (filter.active() != null) {
+			where.add("is_active = :active");
+			params.put("active", filter.active());
+		}
+		if (filter.role() != null) {
+			where.add("roles = :role");
+			params.put("role", filter.role());
+		}
+		range(where, params, "created", filter.createdFrom(), filter.createdTo());
+		range(where, params, "modified", filter.modifiedFrom(), filter.modifiedTo());
+		if (after != null) {
+			where.add("(created > :afterCreated OR (created = :afterCreated AND id > :afterId))");
+			params.put("afterCreated", Timestamp.valueOf(after.created()));
+			params.put("afterId", UuidV7.toBytes(after.id()));
+		}
+		params.put("limit", limit);
+		
+		String sql = "SELECT " + USER_COLUMNS + " FROM users"
+				+ (where.isEmpty() ? "" : " WHERE " + String.join(" AND ", where))
+				+ " ORDER BY created, id LIMIT :limit";
+		return withPhones(jdbcClient.sql(sql).params(params).query(USER_ROW).list());
+	}
+	
+	private static void range(List<String> where, Map<String, Object> params, String column,
+			LocalDateTime from, LocalDateTime to) {
+		if (from != null) {
+			where.add(column + " >= :" + column + "From");
+			params.put(column + "From", Timestamp.valueOf(from));
+		}
+		if (to != null) {
+			where.add(column + " < :" + column + "To");
+			params.put(column + "To", Timestamp.valueOf(to));
+		}
+	}
+	
+	@Override
+	public void forEachChunk(int chunkSize, Consumer<List<User>> consumer) {
+		List<User> chunk = new ArrayList<>(chunkSize);
+		try (Stream<User> users = streamingClient.sql("SELECT " + USER_COLUMNS + " FROM users ORDER BY created, id")
+				.query(USER_ROW)
+				.stream()) {
+			users.forEach(user -> {
+				chunk.add(user);
+				if (chunk.size() == chunkSize) {
+					consumer.accept(withPhones(new ArrayList<>(chunk)));
+					chunk.clear();
+				}
+			});
+		}
+		if (!chunk.isEmpty()) {
+			consumer.accept(withPhones(chunk));
+		}
+	}
+	
+	/*
+	 * Una rama por indice (name_lc, id) y (email_lc, id), cada una con el prefijo como rango y keyset desde el cursor.
+	 * La rama del correo excluye a los que ya aparecen por el nombre; se mezclan y se cortan en memoria.
+	 */
+	@Override
+	public List<User> search(String prefix, UserSearchCursor after, int limit) {
+		UserSearchCursor from = after == null ? UserSearchCursor.start(prefix) : after;
+		List<User> users = Stream.concat(
+						searchBranch("name_lc >= :from AND name_lc < :to", "name_lc", prefix, from, limit).stream(),
+						searchBranch("email_lc >= :from AND email_lc < :to AND NOT (name_lc >= :from AND name_lc < :to)",
+								"email_lc", prefix, from, limit).stream())
+				.sorted(UserSearchCursor.order(prefix))
+				.limit(limit)
+				.collect(Collectors.toCollection(ArrayList::new));
+		return withPhones(users);
+	}
+	
+	private List<User> searchBranch(String range, String key, String prefix, UserSearchCursor from, int limit) {
+		return jdbcClient.sql("""
+				SELECT %s FROM users
+				WHERE %s AND (%3$s > :key OR (%3$s = :key AND id > :id))
+				ORDER BY %3$s, id
+				LIMIT :limit
+				""".formatted(USER_COLUMNS, range, key))
+				.param("from", prefix)
+				.param("to", UserSearchCursor.upperBound(prefix))
+				.param("key", from.key())
+				.param("id", UuidV7.toBytes(from.id()))
+				.param("limit", limit)
+				.query(USER_ROW)
+				.list();
+	}
+	
+	@Override
+	public void forEachEmail(Consumer<String> consumer) {
+		try (Stream<String> emails = streamingClient.sql("SELECT email FROM users").query(String.class).stream()) {
+			emails.forEach(consumer);
+		}
+	}
+	
+	/*
+	 * Una consulta para todos los fonos de los usuarios (IN por ids), sin importar cuantos sean.
+	 */
+	private List<User> withPhones(List<User> users) {
+		if (users.isEmpty()) {
+			return users;
+		}
+		Map<UUID, User> byId = users.stream().collect(Collectors.toMap(User::getId, u -> u));
+		jdbcClient.sql("SELECT " + PHONE_COLUMNS + " FROM phone WHERE user_id IN (:ids) ORDER BY id")
+				.param("ids", users.stream().map(u -> UuidV7.toBytes(u.getId())).toList())
+				.query(PHONE_ROW)
+				.list()
+				.forEach(p -> byId.get(p.userId()).getPhones().add(p.phone()));
+		return users;
+	}
+	
+	@Override
+	public int update(UUID id, Long expectedVersion, UserChanges changes) {
+		StringBuilder sql = new StringBuilder("UPDATE users SET version = version + 1, modified = :modified");
+		Map<String, Object> params = new LinkedHashMap<>();
+		params.put("modified", Timestamp.valueOf(changes.modified()));
+		if (changes.name() != null) {
+			sql.append(", name = :name");
+			params.put("name", changes.name());
+		}
+		if (changes.passwordHash() != null) {
+			sql.append(", password = :password");
+			params.put("password", changes.passwordHash());
+		}
+		if (changes.active() != null) {
+			sql.append(", is_active = :active");
+			params.put("active", changes.active());
+		}
+		if (changes.roles() != null) {
+			sql.append(", roles = :roles");
+			params.put("roles", changes.roles());
+		}
+		sql.append(" WHERE id = :id");
+		params.put("id", UuidV7.toBytes(id));
+		if (expectedVersion != null) {
+			sql.append(" AND version = :version");
+			params.put("version", expectedVersion);
+		}
+		return jdbcClient.sql(sql.toString()).params(params).update();
+	}
+	
+	@Override
+	public int replacePasswordHash(UUID id, String currentHash, String newHash) {
+		return jdbcClient.sql("UPDATE users SET password = ? WHERE id = ? AND password = ?")
+				.param(newHash)
+				.param(UuidV7.toBytes(id))
+				.param(currentHash)
+				.update();
+	}
+	
+	/*
+	 * Se comparan los fonos actuales con los pedidos por clave natural: un DELETE con los que sobran
+	 * y un INSERT batch con los nuevos.
+	 */
+	@Override
+	public void mergePhones(UUID id, List<Phone> phones) {
+		byte[] userId = UuidV7.toBytes(id);
+		if (findVersion(id).isEmpty()) {
+			throw new UserNotFoundException("Usuario no encontrado");
+		}
+		
+		Map<String, Phone> byKey = new LinkedHashMap<>();
+		phones.forEach(p -> byKey.putIfAbsent(p.naturalKey(), p));
+		
+		List<Long> removed = new ArrayList<>();
+		jdbcClient.sql("SELECT " + PHONE_COLUMNS + " FROM phone WHERE user_id = ?")
+				.param(userId)
+				.query(PHONE_ROW)
+				.list()
+				.forEach(p -> {
+					if (byKey.remove(p.phone().naturalKey()) == null) {
+						removed.add(p.phone().getId());
+					}
+				});
+		
+		if (!removed.isEmpty()) {
+			jdbcClient.sql("DELETE FROM phone WHERE id IN (:ids)").param("ids", removed).update();
+		}
+		batchRepo.insertPhones(id, new ArrayList<>(byKey.values()));
+	}
+	
+	@Override
+	public int delete(UUID id, Long expectedVersion) {
+		if (expectedVersion == null) {
+			return jdbcClient.sql("DELETE FROM users WHERE id = ?").param(UuidV7.toBytes(id)).update();
+		}
+		return jdbcClient.sql("DELETE FROM users WHERE id = ? AND version = ?")
+				.param(UuidV7.toBytes(id))
+				.param(expectedVersion)
+				.update();
+	}
+	
+	@Override
+	public int deleteAll(Collection<UUID> ids) {
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		return jdbcClient.sql("DELETE FROM users WHERE id IN (:ids)")
+				.param("ids", ids.stream().map(UuidV7::toBytes).toList())
+				.update();
+	}
+	
+	/*
+	 * Todos los usuarios con sus fonos, para copiar a otro adaptador al iniciar (memory, sharded).
+	 * Solo para tablas pequeñas como la de data.sql.
+	 */
+	static List<User> loadAll(JdbcClient client) {
+		List<User> users = client.sql("SELECT " + USER_COLUMNS + " FROM users").query(USER_ROW).list();
+		Map<UUID, User> byId = users.stream().collect(Collectors.toMap(User::getId, u -> u));
+		client.sql("SELECT " + PHONE_COLUMNS + " FROM phone ORDER BY id")
+				.query(PHONE_ROW)
+				.list()
+				.forEach(p -> byId.get(p.userId()).getPhones().add(p.phone()));
+		return users;
+	}
+	
+	private static UUID uuid(ResultSet rs, String column) throws SQLException {
+		return UuidV7.fromBytes(rs.getBytes(column));
+	}
+}
@@ -0,0 +1,232 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Repository;
+
+import cl.bci.common.exception.UserNotFoundException;
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.domain.Phone;
+import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserChanges;
+import cl.bci.user.domain.UserCredentials;
+import cl.bci.user.domain.UserCursor;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.domain.UserSearchCursor;
+import cl.bci.user.infrastructure.persistence.entity.UserEntity;
+import cl.bci.user.infrastructure.persistence.mapper.UserEntityMapper;
+import cl.bci.user.infrastructure.persistence.projection.PhoneRow;
+import cl.bci.user.infrastructure.persistence.projection.UserRow;
+
+/**
+ * Adaptador por defecto sobre Spring Data JPA. Las lecturas usan proyecciones (sin entidades administradas)
+ * y las escrituras masivas van por JDBC batch.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.persistence.adapter", havingValue = "jpa", matchIfMissing = true)
+public class JpaUserRepositoryAdapter implements UserRespositoryPort {
+	private final UserJpaRepository userRepo;
+	private final UserBatchJdbcRepository batchRepo;
+	private final UserEntityMapper entityMapper;
+	
+	public JpaUserRepositoryAdapter(UserJpaRepository userRepo, UserBatchJdbcRepository batchRepo,
+			UserEntityMapper entityMapper) {
+		this.userRepo = userRepo;
+		this.batchRepo = batchRepo;
+		this.entityMapper = entityMapper;
+	}
+	
+	/*
+	 * No se consulta antes si el correo existe: se inserta directo y la restriccion unica
+	 * uk_users_email decide. Un solo viaje a la BD y sin carrera entre dos registros simultaneos.
+	 */
+	@Override
+	public User insert(User user) {
+		try {
+			return entityMapper.toDomain(userRepo.saveAndFlush(entityMapper.toEntity(user)));
+		} catch (DataIntegrityViolationException e) {
+			throw PersistenceErrors.translate(e, user.getEmail());
+		}
+	}
+	
+	@Override
+	public void insertAll(List<User> users) {
+		try {
+			batchRepo.insertAll(users);
+		} catch (DataIntegrityViolationException e) {
+			throw PersistenceErrors.translate(e, null);
+		}
+	}
+	
+	@Override
+	public Optional<User> findById(UUID id) {
+		return userRepo.findRowById(id)
+				.map(row -> entityMapper.toDomain(row, userRepo.findPhoneRows(List.of(id))));
+	}
+	
+	@Override
+	public Optional<Long> findVersion(UUID id) {
+		return userRepo.findVersion(id);
+	}
+	
+	@Override
+	public Optional<UserCredentials> findCredentialsByEmail(String email) {
+		return userRepo.findCredentialsByEmail(email);
+	}
+	
+	@Override
+	public boolean existsByEmail(String email) {
+		return userRepo.existsByEmail(email);
+	}
+	
+	@Override
+	public Set<String> findExistingEmails(Collection<String> emails) {
+		return batchRepo.findExistingEmails(emails);
+	}
+	
+	@Override
+	public List<User> findByPhone(String countrycode, String citycode, String number) {
+		return withPhones(userRepo.findRowsByPhone(countrycode, citycode, number));
+	}
+	
+	@Override
+	public List<User> findPage(UserFilter filter, UserCursor after, int limit) {
+		if (!filter.isEmpty()) {
+			return withPhones(userRepo.findFilteredPage(filter, after, limit));
+		}
+		List<UserRow> rows = after == null
+				? userRepo.findFirstPage(Limit.of(limit))
+				: userRepo.findPageAfter(after.created(), after.id(), Limit.of(limit));
+		return withPhones(rows);
+	}
+	
+	/*
+	 * Se leen proyecciones (sin contexto de persistencia) y los fonos se cargan con un IN por bloque,
+	 * asi la memoria no crece con el tamaño de la tabla.
+	 */
+	@Override
+	public void forEachChunk(int chunkSize, Consumer<List<User>> consumer) {
+		List<UserRow> chunk = new ArrayList<>(chunkSize);
+		try (Stream<UserRow> rows = userRepo.streamAll()) {
+			rows.forEach(row -> {
+				chunk.add(row);
+				if (chunk.size() == chunkSize) {
+					consumer.accept(withPhones(chunk));
+					chunk.clear();
+				}
+			});
+		}
+		if (!chunk.isEmpty()) {
+			consumer.accept(withPhones(chunk));
+		}
+	}
+	
+	/*
+	 * Cada rama trae a lo sumo limit filas ya ordenadas por su indice; se mezclan y se cortan en memoria.
+	 */
+	@Override
+	public List<User> search(String prefix, UserSearchCursor after, int limit) {
+		UserSearchCursor from = after == null ? UserSearchCursor.start(prefix) : after;
+		String to = UserSearchCursor.upperBound(prefix);
+		List<UserRow> rows = Stream.concat(
+						userRepo.searchByName(prefix, to, from.key(), from.id(), Limit.of(limit)).stream(),
+						userRepo.searchByEmail(prefix, to, from.key(), from.id(), Limit.of(limit)).stream())
+				.sorted(Comparator.comparing(
+						(UserRow row) -> UserSearchCursor.of(row.id(), row.name(), row.email(), prefix), UserSearchCursor.ORDER))
+				.limit(limit)
+				.toList();
+		return withPhones(rows);
+	}
+	
+	@Override
+	public void forEachEmail(Consumer<String> consumer) {
+		try (Stream<String> emails = userRepo.streamEmails()) {
+			emails.forEach(consumer);
+		}
+	}
+	
+	/*
+	 * Una consulta para todos los fonos de los usuarios (IN por ids), sin importar cuantos sean.
+	 */
+	private List<User> withPhones(List<UserRow> rows) {
+		if (rows.isEmpty()) {
+			return List.of();
+		}
+		Map<UUID, List<PhoneRow>> phonesByUser = userRepo.findPhoneRows(rows.stream().map(UserRow::id).toList()).stream()
+				.collect(Collectors.groupingBy(PhoneRow::userId));
+		return rows.stream()
+				.map(row -> entityMapper.toDomain(row, phonesByUser.getOrDefault(row.id(), List.of())))
+				.toList();
+	}
+	
+	@Override
+	public int update(UUID id, Long expectedVersion, UserChanges changes) {
+		Map<String, Object> columns = new LinkedHashMap<>();
+		if (changes.name() != null) {
+			columns.put("name", changes.name());
+		}
+		if (changes.passwordHash() != null) {
+			columns.put("password", changes.passwordHash());
+		}
+		if (changes.active() != null) {
+			columns.put("isActive", changes.active());
+		}
+		if (changes.roles() != null) {
+			columns.put("roles", changes.roles());
+		}
+		columns.put("modified", changes.modified());
+		return userRepo.patch(id, expectedVersion, columns);
+	}
+	
+	@Override
+	public int replacePasswordHash(UUID id, String currentHash, String newHash) {
+		return userRepo.replacePasswordHash(id, currentHash, newHash);
+	}
+	
+	/*
+	 * Sobre la coleccion administrada: orphanRemoval borra solo los fonos que ya no vienen
+	 * y el flush inserta solo los nuevos, los que no cambiaron no generan sentencias.
+	 */
+	@Override
+	public void mergePhones(UUID id, List<Phone> phones) {
+		UserEntity entity = userRepo.findById(id)
+				.orElseThrow(() -> new UserNotFoundException("Usuario no encontrado"));
+		
+		Map<String, Phone> byKey = new LinkedHashMap<>();
+		phones.forEach(p -> byKey.putIfAbsent(p.naturalKey(), p));
+		
+		entity.getPhones().removeIf(p -> byKey.remove(Phone.naturalKey(p.getNumber(), p.getCitycode(), p.getCountrycode())) == null);
+		
+		// lo que queda en el mapa son fonos nuevos
+		byKey.values().forEach(p -> entity.getPhones().add(entityMapper.toEntity(p, entity)));
+	}
+	
+	/*
+	 * Un solo DELETE sin cargar el agregado: los fonos los elimina el ON DELETE CASCADE de fk_user.
+	 */
+	@Override
+	public int delete(UUID id, Long expectedVersion) {
+		return expectedVersion == null
+				? userRepo.deleteRowById(id)
+				: userRepo.deleteByIdAndVersion(id, expectedVersion);
+	}
+	
+	@Override
+	public int deleteAll(Collection<UUID> ids) {
+		return userRepo.deleteRowsByIds(ids);
+	}
+}
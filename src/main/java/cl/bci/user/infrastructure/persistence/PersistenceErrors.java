@@ -0,0 +1,44 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.util.regex.Pattern;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import cl.bci.common.exception.DatabaseException;
+import cl.bci.common.exception.EmailException;
+
+/**
+ * Traduce las violaciones de integridad de la BD a las excepciones del puerto.
+ */
+final class PersistenceErrors {
+	/*
+	 * El registro depende de estos nombres (schema.sql) para traducir el duplicado a 409: uk_users_email en users
+	 * y uk_user_directory_email en el directorio del adaptador sharded. Se busca el nombre completo como
+	 * identificador, H2 le agrega _INDEX_n al indice y el mensaje lo antepone con el esquema.
+	 */
+	private static final Pattern EMAIL_CONSTRAINTS =
+			Pattern.compile("\\b(uk_users_email|uk_user_directory_email)(_index_\\d+)?\\b", Pattern.CASE_INSENSITIVE);
+	
+	private PersistenceErrors() {}
+	
+	static RuntimeException translate(DataIntegrityViolationException e, String email) {
+		if (isEmailConstraint(e)) {
+			String mensaje = email == null
+					? "Uno de los correos ya está registrado"
+					: "El correo " + email + ", ya está registrado ";
+			return new EmailException(mensaje, e);
+		}
+		return new DatabaseException("No fue posible registrar el usuario", e);
+	}
+	
+	private static boolean isEmailConstraint(DataIntegrityViolationException e) {
+		for (Throwable t = e; t != null; t = t.getCause()) {
+			if (t instanceof ConstraintViolationException cve && cve.getConstraintName() != null) {
+				return EMAIL_CONSTRAINTS.matcher(cve.getConstraintName()).find();
+			}
+		}
+		String detail = e.getMostSpecificCause().getMessage();
+		return detail != null && EMAIL_CONSTRAINTS.matcher(detail).find();
+	}
+}
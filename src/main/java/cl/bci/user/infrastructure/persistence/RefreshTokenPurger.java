@@ -0,0 +1,81 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import cl.bci.user.application.port.RefreshTokenRepositoryPort;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Elimina periodicamente los refresh tokens vencidos, en bloques de batch-size filas
+ * (cada bloque es su propia sentencia y se confirma solo) hasta que no quedan.
+ */
+@Component
+public class RefreshTokenPurger implements DisposableBean {
+	private static final Logger logger = LoggerFactory.getLogger(RefreshTokenPurger.class);
+
+	private final RefreshTokenRepositoryPort refreshTokens;
+	private final Duration interval;
+	private final int batchSize;
+	private final Counter purged;
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "refresh-token-purge");
+		t.setDaemon(true);
+		return t;
+	});
+
+	public RefreshTokenPurger(RefreshTokenRepositoryPort refreshTokens, MeterRegistry meterRegistry,
+			@Value("${app.auth.refresh-token.purge-interval:10m}") Duration interval,
+			@Value("${app.auth.refresh-token.purge-batch-size:1000}") int batchSize) {
+		this.refreshTokens = refreshTokens;
+		this.interval = interval;
+		this.batchSize = Math.max(1, batchSize);
+		this.purged = Counter.builder("auth.refresh-tokens.purged").register(meterRegistry);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onReady() {
+		if (!interval.isZero() && !interval.isNegative()) {
+			scheduler.scheduleWithFixedDelay(this::safePurge, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	public int purge() {
+		LocalDateTime now = LocalDateTime.now();
+		int total = 0;
+		int deleted;
+		do {
+			deleted = refreshTokens.deleteExpired(now, batchSize);
+			total += deleted;
+		} while (deleted == batchSize);
+		purged.increment(total);
+		return total;
+	}
+
+	private void safePurge() {
+		try {
+			int total = purge();
+			logger.debug("Refresh tokens vencidos eliminados: {}", total);
+		} catch (RuntimeException e) {
+			// se reintenta en el siguiente intervalo
+			logger.error("No se pudieron eliminar los refresh tokens vencidos", e);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		scheduler.shutdownNow();
+	}
+}
@@ -0,0 +1,146 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import cl.bci.common.helper.BloomFilter;
+import cl.bci.user.application.port.UserRespositoryPort;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Filtro de Bloom con los correos registrados, delante de las consultas por correo (login, disponibilidad, importacion).
+ * Un "no existe" es definitivo y evita ir a la BD; un "puede existir" se confirma en la BD.
+ * Se construye al iniciar (mientras tanto todo va a la BD) y se agrega cada correo antes de insertarlo.
+ * Los bits no se pueden borrar: despues de app.email-filter.rebuild-after-deletes eliminaciones se reconstruye en segundo plano.
+ * El filtro es local a la instancia: con varias instancias sobre la misma BD debe deshabilitarse (app.email-filter.enabled=false),
+ * porque un registro hecho en otra instancia se veria como "no existe".
+ */
+@Component
+public class RegisteredEmails implements DisposableBean {
+	private static final Logger logger = LoggerFactory.getLogger(RegisteredEmails.class);
+	// un correo agregado puede tardar en confirmarse; la reconstruccion reincorpora los de esta ventana
+	private static final long RECENT_WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+	
+	private record Added(String email, long at) {}
+
+	private final UserRespositoryPort userRepo;
+	private final TransactionTemplate readOnlyTx;
+	private final boolean enabled;
+	private final long expectedEmails;
+	private final double fpp;
+	private final long rebuildAfterDeletes;
+	private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(r -> new Thread(r, "email-filter-rebuild"));
+	private final AtomicBoolean rebuilding = new AtomicBoolean();
+	private final AtomicLong deletes = new AtomicLong();
+
+	// null hasta que termina la primera construccion
+	private volatile BloomFilter current;
+	// durante una reconstruccion los correos nuevos van tambien al filtro que se esta armando
+	private BloomFilter building;
+	private final Deque<Added> recent = new ArrayDeque<>();
+
+	public RegisteredEmails(UserRespositoryPort userRepo, PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+			@Value("${app.email-filter.enabled:true}") boolean enabled,
+			@Value("${app.email-filter.expected-emails:1000000}") long expectedEmails,
+			@Value("${app.email-filter.fpp:0.01}") double fpp,
+			@Value("${app.email-filter.rebuild-after-deletes:100000}") long rebuildAfterDeletes) {
+		this.userRepo = userRepo;
+		this.readOnlyTx = new TransactionTemplate(transactionManager);
+		this.readOnlyTx.setReadOnly(true);
+		this.enabled = enabled;
+		this.expectedEmails = expectedEmails;
+		this.fpp = fpp;
+		this.rebuildAfterDeletes = Math.max(1, rebuildAfterDeletes);
+		Gauge.builder("users.email-filter.deletes", deletes, AtomicLong::get)
+				.description("Eliminaciones desde la ultima construccion del filtro de correos")
+				.register(meterRegistry);
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onReady() {
+		if (enabled) {
+			rebuild();
+		}
+	}
+
+	/**
+	 * false solo si el correo seguro no esta registrado. Deshabilitado o aun sin construir siempre responde true.
+	 */
+	public boolean mightExist(String email) {
+		BloomFilter filter = current;
+		return filter == null || email == null || filter.mightContain(email);
+	}
+
+	// Se llama antes de insertar: si el INSERT falla queda solo un falso positivo
+	public synchronized void add(String email) {
+		if (current != null) {
+			current.put(email);
+		}
+		if (building != null) {
+			building.put(email);
+		}
+		long now = System.nanoTime();
+		while (!recent.isEmpty() && now - recent.peekFirst().at() > RECENT_WINDOW_NANOS) {
+			recent.pollFirst();
+		}
+		recent.addLast(new Added(email, now));
+	}
+
+	public void removed(int count) {
+		if (enabled && count > 0 && deletes.addAndGet(count) >= rebuildAfterDeletes && rebuilding.compareAndSet(false, true)) {
+			rebuilder.execute(() -> {
+				try {
+					rebuild();
+				} finally {
+					rebuilding.set(false);
+				}
+			});
+		}
+	}
+
+	void rebuild() {
+		BloomFilter next = new BloomFilter(expectedEmails, fpp);
+		synchronized (this) {
+			// los agregados justo antes pueden no estar confirmados todavia y no aparecer en el recorrido
+			recent.forEach(added -> next.put(added.email()));
+			building = next;
+		}
+		long startDeletes = deletes.get();
+		try {
+			readOnlyTx.executeWithoutResult(status -> userRepo.forEachEmail(next::put));
+			synchronized (this) {
+				current = next;
+			}
+			deletes.addAndGet(-startDeletes);
+			logger.info("Filtro de correos construido: {} bits, {} funciones hash", next.bitSize(), next.hashFunctions());
+		} catch (RuntimeException e) {
+			// se mantiene el filtro anterior (o ninguno: todo va a la BD)
+			logger.error("No se pudo construir el filtro de correos", e);
+		} finally {
+			synchronized (this) {
+				building = null;
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		rebuilder.shutdownNow();
+	}
+}
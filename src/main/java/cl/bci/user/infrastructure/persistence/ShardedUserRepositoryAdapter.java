@@ -0,0 +1,320 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.domain.Phone;
+import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserChanges;
+import cl.bci.user.domain.UserCredentials;
+import cl.bci.user.domain.UserCursor;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.domain.UserSearchCursor;
+
+/**
+ * Reparte usuarios y fonos entre N BD (app.persistence.sharding.urls) segun el hash del id.
+ * Cada shard se accede con el adaptador JDBC y tiene su propio manejador de transacciones.
+ * El correo se resuelve con la tabla user_directory de la BD principal, que ademas garantiza que sea unico.
+ * Cambiar la cantidad de shards mueve usuarios de shard: requiere redistribuir los datos.
+ *
+ * No hay commit en dos fases. Cada escritura en un shard corre en la transaccion de ese shard y confirma
+ * al terminar; los cambios del directorio se unen a la transaccion del llamador (si la hay) y confirman despues.
+ * Los casos de falla entre ambas BD:
+ * - insert/insertAll: el directorio se escribe primero, asi un correo repetido corta antes de tocar los shards.
+ *   Si un shard falla o el directorio se revierte despues de que un shard confirmo, se borran esas filas del
+ *   shard al terminar el rollback. Si ese borrado tambien falla quedan filas en el shard sin entrada en el
+ *   directorio: no se encuentran por correo ni chocan con un nuevo registro, pero si aparecen por id y en
+ *   los listados; se informa en el log para borrarlas a mano.
+ * - delete/deleteAll: primero el shard y luego el directorio. Si el directorio se revierte despues de que el
+ *   shard confirmo, el borrado ya es definitivo y se quita la entrada del directorio en una transaccion nueva;
+ *   si eso falla el correo queda ocupado por un usuario inexistente (el login responde como usuario no
+ *   encontrado) hasta borrar la entrada a mano, tambien informado en el log.
+ * - update/replacePasswordHash/mergePhones: solo tocan el shard del usuario, sin pasos en el directorio.
+ *   Confirman aunque despues se revierta la transaccion del llamador.
+ */
+@Repository
+@ConditionalOnProperty(name = "app.persistence.adapter", havingValue = "sharded")
+public class ShardedUserRepositoryAdapter implements UserRespositoryPort, DisposableBean {
+	private static final Logger logger = LoggerFactory.getLogger(ShardedUserRepositoryAdapter.class);
+	private static final Comparator<User> ORDER =
+			Comparator.comparing((User u) -> new UserCursor(u.getCreated(), u.getId()), UserCursor.ORDER);
+	
+	private record Shard(DataSource dataSource, JdbcUserRepositoryAdapter store, TransactionTemplate tx) {}
+	
+	private final List<Shard> shards;
+	private final UserDirectory directory;
+	private final TransactionTemplate directoryTx;
+	// las compensaciones corren despues del rollback, fuera de la transaccion original
+	private final TransactionTemplate compensationTx;
+	
+	public ShardedUserRepositoryAdapter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			@Value("${app.persistence.sharding.urls}") List<String> urls,
+			@Value("${app.persistence.sharding.username:sa}") String username,
+			@Value("${app.persistence.sharding.password:}") String password,
+			@Value("${app.persistence.sharding.init-schema:false}") boolean initSchema,
+			@Value("${app.persistence.sharding.seed-from-primary:false}") boolean seedFromPrimary) {
+		if (urls.isEmpty()) {
+			throw new IllegalStateException("app.persistence.sharding.urls debe tener al menos un shard");
+		}
+		this.directory = new UserDirectory(jdbcTemplate);
+		this.directoryTx = new TransactionTemplate(transactionManager);
+		this.compensationTx = new TransactionTemplate(transactionManager);
+		compensationTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		
+		List<Shard> list = new ArrayList<>(urls.size());
+		for (String url : urls) {
+			DataSource dataSource = DataSourceBuilder.create().url(url.trim()).username(username).password(password).build();
+			if (initSchema) {
+				new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+			}
+			JdbcTemplate template = new JdbcTemplate(dataSource);
+			JdbcUserRepositoryAdapter store = new JdbcUserRepositoryAdapter(JdbcClient.create(template), template,
+					new UserBatchJdbcRepository(template, new NamedParameterJdbcTemplate(template)));
+			list.add(new Shard(dataSource, store, new TransactionTemplate(new DataSourceTransactionManager(dataSource))));
+		}
+		this.shards = List.copyOf(list);
+		
+		// los usuarios de data.sql quedan en la BD principal: se reparten para que el login funcione igual
+		if (seedFromPrimary) {
+			List<User> seed = JdbcUserRepositoryAdapter.loadAll(JdbcClient.create(jdbcTemplate));
+			if (!seed.isEmpty()) {
+				insertAll(seed);
+			}
+		}
+	}
+	
+	private int shardIndex(UUID id) {
+		return Math.floorMod(id.hashCode(), shards.size());
+	}
+	
+	private Shard shardOf(UUID id) {
+		return shards.get(shardIndex(id));
+	}
+	
+	@Override
+	public User insert(User user) {
+		return directoryTx.execute(status -> {
+			registerEmails(List.of(user), user.getEmail());
+			Shard shard = shardOf(user.getId());
+			User inserted = shard.tx().execute(s -> shard.store().insert(user));
+			onRollback("borrar del shard el usuario " + user.getId(),
+					() -> shard.tx().executeWithoutResult(s -> shard.store().deleteAll(List.of(user.getId()))));
+			return inserted;
+		});
+	}
+	
+	// Primero el directorio (un correo repetido corta todo el lote) y luego un batch por shard
+	@Override
+	public void insertAll(List<User> users) {
+		directoryTx.executeWithoutResult(status -> {
+			registerEmails(users, null);
+			byShard(users, User::getId).forEach((index, group) -> {
+				Shard shard = shards.get(index);
+				shard.tx().executeWithoutResult(s -> shard.store().insertAll(group));
+				List<UUID> ids = group.stream().map(User::getId).toList();
+				onRollback("borrar del shard " + index + " " + ids.size() + " usuarios",
+						() -> shard.tx().executeWithoutResult(s -> shard.store().deleteAll(ids)));
+			});
+		});
+	}
+	
+	private void registerEmails(List<User> users, String email) {
+		try {
+			directory.insertAll(users, this::shardIndex);
+		} catch (DataIntegrityViolationException e) {
+			throw PersistenceErrors.translate(e, email);
+		}
+	}
+	
+	@Override
+	public Optional<User> findById(UUID id) {
+		return shardOf(id).store().findById(id);
+	}
+	
+	@Override
+	public Optional<Long> findVersion(UUID id) {
+		return shardOf(id).store().findVersion(id);
+	}
+	
+	@Override
+	public Optional<UserCredentials> findCredentialsByEmail(String email) {
+		return directory.find(email)
+				.flatMap(entry -> shards.get(entry.shard()).store().findCredentialsByEmail(email));
+	}
+	
+	@Override
+	public boolean existsByEmail(String email) {
+		return directory.find(email).isPresent();
+	}
+	
+	@Override
+	public Set<String> findExistingEmails(Collection<String> emails) {
+		return directory.findExistingEmails(emails);
+	}
+	
+	// Los fonos viven en el shard de su usuario y el directorio solo conoce correos: se consulta cada shard
+	@Override
+	public List<User> findByPhone(String countrycode, String citycode, String number) {
+		return shards.stream()
+				.flatMap(shard -> shard.store().findByPhone(countrycode, citycode, number).stream())
+				.sorted(ORDER)
+				.toList();
+	}
+	
+	/*
+	 * Scatter-gather: cada shard entrega a lo mas "limit" usuarios despues del cursor, en orden;
+	 * la mezcla de esas listas ordenada por (created, id) y cortada en "limit" es la pagina global.
+	 */
+	@Override
+	public List<User> findPage(UserFilter filter, UserCursor after, int limit) {
+		return shards.stream()
+				.flatMap(shard -> shard.store().findPage(filter, after, limit).stream())
+				.sorted(ORDER)
+				.limit(limit)
+				.toList();
+	}
+	
+	// Se recorre pagina a pagina con el mismo cursor, asi se mantiene el orden global con memoria acotada
+	@Override
+	public void forEachChunk(int chunkSize, Consumer<List<User>> consumer) {
+		List<User> chunk = findPage(null, chunkSize);
+		while (!chunk.isEmpty()) {
+			consumer.accept(chunk);
+			User last = chunk.get(chunk.size() - 1);
+			chunk = chunk.size() < chunkSize ? List.of() : findPage(new UserCursor(last.getCreated(), last.getId()), chunkSize);
+		}
+	}
+	
+	// Igual que findPage: cada shard entrega su mejor pagina y se mezclan por (clave, id)
+	@Override
+	public List<User> search(String prefix, UserSearchCursor after, int limit) {
+		return shards.stream()
+				.flatMap(shard -> shard.store().search(prefix, after, limit).stream())
+				.sorted(UserSearchCursor.order(prefix))
+				.limit(limit)
+				.toList();
+	}
+	
+	// El directorio tiene todos los correos, no hace falta recorrer los shards
+	@Override
+	public void forEachEmail(Consumer<String> consumer) {
+		directoryTx.executeWithoutResult(status -> directory.forEachEmail(consumer));
+	}
+	
+	@Override
+	public int update(UUID id, Long expectedVersion, UserChanges changes) {
+		Shard shard = shardOf(id);
+		return shard.tx().execute(status -> shard.store().update(id, expectedVersion, changes));
+	}
+	
+	@Override
+	public int replacePasswordHash(UUID id, String currentHash, String newHash) {
+		Shard shard = shardOf(id);
+		return shard.tx().execute(status -> shard.store().replacePasswordHash(id, currentHash, newHash));
+	}
+	
+	@Override
+	public void mergePhones(UUID id, List<Phone> phones) {
+		Shard shard = shardOf(id);
+		shard.tx().executeWithoutResult(status -> shard.store().mergePhones(id, phones));
+	}
+	
+	// Primero el shard: si el directorio se revierte despues, el correo se libera igual (ver la clase)
+	@Override
+	public int delete(UUID id, Long expectedVersion) {
+		return directoryTx.execute(status -> {
+			Shard shard = shardOf(id);
+			int deleted = shard.tx().execute(s -> shard.store().delete(id, expectedVersion));
+			if (deleted > 0) {
+				onRollback("quitar del directorio el usuario " + id,
+						() -> compensationTx.executeWithoutResult(s -> directory.deleteAll(List.of(id))));
+				directory.deleteAll(List.of(id));
+			}
+			return deleted;
+		});
+	}
+	
+	@Override
+	public int deleteAll(Collection<UUID> ids) {
+		return directoryTx.execute(status -> {
+			int deleted = 0;
+			for (Map.Entry<Integer, List<UUID>> e : byShard(ids, id -> id).entrySet()) {
+				Shard shard = shards.get(e.getKey());
+				List<UUID> group = e.getValue();
+				deleted += shard.tx().execute(s -> shard.store().deleteAll(group));
+				onRollback("quitar del directorio " + group.size() + " usuarios del shard " + e.getKey(),
+						() -> compensationTx.executeWithoutResult(s -> directory.deleteAll(group)));
+				directory.deleteAll(group);
+			}
+			return deleted;
+		});
+	}
+	
+	/*
+	 * Deshace una escritura ya confirmada en otra BD si la transaccion del directorio termina en rollback.
+	 * Se registra apenas confirma el paso a compensar, asi tambien cubre una falla en los pasos siguientes.
+	 */
+	private static void onRollback(String description, Runnable compensation) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status != STATUS_ROLLED_BACK) {
+					return;
+				}
+				try {
+					compensation.run();
+				} catch (RuntimeException e) {
+					logger.error("No fue posible {} tras el rollback del directorio, revisar a mano", description, e);
+				}
+			}
+		});
+	}
+	
+	private <T> Map<Integer, List<T>> byShard(Collection<T> items, Function<T, UUID> id) {
+		return items.stream().collect(Collectors.groupingBy(item -> shardIndex(id.apply(item))));
+	}
+	
+	@Override
+	public void destroy() throws Exception {
+		for (Shard shard : shards) {
+			if (shard.dataSource() instanceof AutoCloseable closeable) {
+				closeable.close();
+			}
+		}
+	}
+}
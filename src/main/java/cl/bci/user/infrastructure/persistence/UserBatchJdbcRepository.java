@@ -0,0 +1,87 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import cl.bci.common.helper.UuidV7;
+import cl.bci.user.domain.Phone;
+import cl.bci.user.domain.User;
+
+/**
+ * Inserciones masivas con JDBC batch, sin pasar por el contexto de persistencia.
+ * Usado por los adaptadores JPA (importacion masiva, POST /users/batch) y JDBC.
+ */
+@Repository
+public class UserBatchJdbcRepository {
+	private static final String INSERT_USER = """
+			INSERT INTO users (id, name, email, password, created, modified, last_login, token, is_active, roles)
+			VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+			""";
+	private static final String INSERT_PHONE = """
+			INSERT INTO phone (number, citycode, countrycode, user_id)
+			VALUES (?, ?, ?, ?)
+			""";
+	
+	private final JdbcTemplate jdbcTemplate;
+	private final NamedParameterJdbcTemplate namedJdbcTemplate;
+	
+	public UserBatchJdbcRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.namedJdbcTemplate = namedJdbcTemplate;
+	}
+	
+	public Set<String> findExistingEmails(Collection<String> emails) {
+		if (emails.isEmpty()) {
+			return Set.of();
+		}
+		return new HashSet<>(namedJdbcTemplate.queryForList(
+				"SELECT email FROM users WHERE email IN (:emails)", Map.of("emails", emails), String.class));
+	}
+	
+	/**
+	 * Inserta los usuarios y sus fonos con dos sentencias batch. Debe llamarse dentro de una transaccion.
+	 */
+	public void insertAll(List<User> users) {
+		List<Object[]> userArgs = new ArrayList<>(users.size());
+		List<Object[]> phoneArgs = new ArrayList<>();
+		
+		for (User u : users) {
+			byte[] id = UuidV7.toBytes(u.getId());
+			userArgs.add(new Object[] {
+					id, u.getName(), u.getEmail(), u.getPassword(),
+					Timestamp.valueOf(u.getCreated()), Timestamp.valueOf(u.getModified()), Timestamp.valueOf(u.getLastLogin()),
+					u.getToken(), u.isActive(), u.getRoles()
+			});
+			for (Phone p : u.getPhones()) {
+				phoneArgs.add(phoneArgs(id, p));
+			}
+		}
+		
+		jdbcTemplate.batchUpdate(INSERT_USER, userArgs);
+		if (!phoneArgs.isEmpty()) {
+			jdbcTemplate.batchUpdate(INSERT_PHONE, phoneArgs);
+		}
+	}
+	
+	public void insertPhones(UUID userId, List<Phone> phones) {
+		if (phones.isEmpty()) {
+			return;
+		}
+		byte[] id = UuidV7.toBytes(userId);
+		jdbcTemplate.batchUpdate(INSERT_PHONE, phones.stream().map(p -> phoneArgs(id, p)).toList());
+	}
+	
+	private static Object[] phoneArgs(byte[] userId, Phone p) {
+		return new Object[] { p.getNumber(), p.getCitycode(), p.getContrycode(), userId };
+	}
+}
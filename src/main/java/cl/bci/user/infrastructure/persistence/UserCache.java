@@ -0,0 +1,121 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import cl.bci.common.dto.Versioned;
+import cl.bci.common.helper.ExpiringCache;
+import cl.bci.user.domain.UserCredentials;
+import cl.bci.user.infrastructure.rest.dto.UserResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache de lectura delante de UserRespositoryPort: usuarios por id (GET /users/{id}) y credenciales por correo (login).
+ * Son dos caches independientes, cada una con su tamaño y TTL.
+ * Las escrituras invalidan al confirmar la transaccion; el TTL acota cualquier lectura que haya quedado
+ * desactualizada por una carrera entre la carga y el commit.
+ * Con app.cache.users.max-entries=0 queda deshabilitada y todas las lecturas van a la BD (consistencia exacta).
+ */
+@Component
+public class UserCache {
+	private final ExpiringCache<UUID, Versioned<UserResponse>> byId;
+	private final ExpiringCache<String, UserCredentials> byEmail;
+	// correo bajo el que estan cacheadas las credenciales de cada id, para invalidarlas sin recorrer byEmail
+	private final ExpiringCache<UUID, String> emailById;
+	
+	public UserCache(MeterRegistry meterRegistry,
+			@Value("${app.cache.users.max-entries:10000}") int maxEntries,
+			@Value("${app.cache.users.ttl:60s}") Duration ttl,
+			@Value("${app.cache.credentials.max-entries:10000}") int credentialsMaxEntries,
+			@Value("${app.cache.credentials.ttl:60s}") Duration credentialsTtl) {
+		this.byId = new ExpiringCache<>(maxEntries, ttl);
+		this.byEmail = new ExpiringCache<>(credentialsMaxEntries, credentialsTtl);
+		this.emailById = new ExpiringCache<>(credentialsMaxEntries, credentialsTtl);
+		byId.registerMetrics(meterRegistry, "users.by-id");
+		byEmail.registerMetrics(meterRegistry, "users.by-email");
+	}
+	
+	public boolean cachesUsers() {
+		return byId.isEnabled();
+	}
+	
+	public boolean cachesCredentials() {
+		return byEmail.isEnabled();
+	}
+	
+	public Versioned<UserResponse> getById(UUID id, Function<UUID, Versioned<UserResponse>> loader) {
+		return byId.get(id, loader);
+	}
+	
+	// Version del usuario si esta en cache, para responder If-None-Match sin ir a la BD
+	public Optional<Long> cachedVersion(UUID id) {
+		return Optional.ofNullable(byId.get(id)).map(Versioned::version);
+	}
+	
+	/*
+	 * Cada lectura renueva la entrada de emailById, asi no expira antes que la de byEmail.
+	 * Si igual se pierde (makeRoom), la entrada de byEmail queda hasta su TTL, como cualquier carrera con el commit.
+	 */
+	public UserCredentials getByEmail(String email, Function<String, UserCredentials> loader) {
+		UserCredentials credentials = byEmail.get(email, loader);
+		if (credentials != null) {
+			emailById.put(credentials.id(), email);
+		}
+		return credentials;
+	}
+	
+	public void evict(UUID id, String email) {
+		afterCommit(() -> {
+			if (email != null) {
+				byEmail.invalidate(email);
+			}
+			if (id != null) {
+				byId.invalidate(id);
+				evictCredentials(id);
+			}
+		});
+	}
+	
+	public void evictAll(Collection<UUID> ids) {
+		Set<UUID> evicted = new HashSet<>(ids);
+		afterCommit(() -> evicted.forEach(id -> {
+			byId.invalidate(id);
+			evictCredentials(id);
+		}));
+	}
+	
+	// las escrituras por id no siempre conocen el correo
+	private void evictCredentials(UUID id) {
+		String email = emailById.get(id);
+		if (email != null) {
+			byEmail.invalidate(email);
+			emailById.invalidate(id);
+		}
+	}
+	
+	/*
+	 * Se invalida de inmediato (para que nadie lea el valor anterior mientras dura la transaccion)
+	 * y otra vez al confirmar, por si una lectura concurrente volvio a cargar el valor anterior.
+	 */
+	private static void afterCommit(Runnable eviction) {
+		eviction.run();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					eviction.run();
+				}
+			});
+		}
+	}
+}
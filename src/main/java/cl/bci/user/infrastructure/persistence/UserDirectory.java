@@ -0,0 +1,72 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.JdbcClient;
+
+import cl.bci.common.helper.UuidV7;
+import cl.bci.user.domain.User;
+
+/**
+ * Tabla user_directory (email -> id y shard) en la BD principal. La restriccion unica del correo
+ * vive aqui, porque cada shard solo ve a sus propios usuarios.
+ */
+class UserDirectory {
+	record Entry(UUID userId, int shard) {}
+	
+	private final JdbcTemplate jdbcTemplate;
+	private final JdbcClient jdbcClient;
+	
+	UserDirectory(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.jdbcClient = JdbcClient.create(jdbcTemplate);
+	}
+	
+	// un correo ya registrado hace fallar el lote completo por uk_user_directory_email
+	void insertAll(List<User> users, ToIntFunction<UUID> shardOf) {
+		jdbcTemplate.batchUpdate("INSERT INTO user_directory (user_id, email, shard) VALUES (?, ?, ?)",
+				users.stream()
+						.map(u -> new Object[] { UuidV7.toBytes(u.getId()), u.getEmail(), shardOf.applyAsInt(u.getId()) })
+						.toList());
+	}
+	
+	Optional<Entry> find(String email) {
+		return jdbcClient.sql("SELECT user_id, shard FROM user_directory WHERE email = ?")
+				.param(email)
+				.query((rs, rowNum) -> new Entry(UuidV7.fromBytes(rs.getBytes("user_id")), rs.getInt("shard")))
+				.optional();
+	}
+	
+	Set<String> findExistingEmails(Collection<String> emails) {
+		if (emails.isEmpty()) {
+			return Set.of();
+		}
+		return new HashSet<>(jdbcClient.sql("SELECT email FROM user_directory WHERE email IN (:emails)")
+				.param("emails", emails)
+				.query(String.class)
+				.list());
+	}
+	
+	void forEachEmail(Consumer<String> consumer) {
+		jdbcTemplate.query("SELECT email FROM user_directory", rs -> {
+			consumer.accept(rs.getString("email"));
+		});
+	}
+	
+	void deleteAll(Collection<UUID> userIds) {
+		if (userIds.isEmpty()) {
+			return;
+		}
+		jdbcClient.sql("DELETE FROM user_directory WHERE user_id IN (:ids)")
+				.param("ids", userIds.stream().map(UuidV7::toBytes).toList())
+				.update();
+	}
+}
@@ -0,0 +1,18 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.util.List;
+
+import cl.bci.user.domain.UserCursor;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.infrastructure.persistence.projection.UserRow;
+
+/**
+ * Fragmento de UserJpaRepository para el listado con filtros.
+ */
+public interface UserFilterRepository {
+	
+	/**
+	 * Pagina ordenada por (created, id) con solo los filtros presentes en el WHERE, junto al keyset desde el cursor.
+	 */
+	List<UserRow> findFilteredPage(UserFilter filter, UserCursor after, int limit);
+}
@@ -0,0 +1,69 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import cl.bci.user.domain.UserCursor;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.infrastructure.persistence.entity.UserEntity;
+import cl.bci.user.infrastructure.persistence.projection.UserRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+class UserFilterRepositoryImpl implements UserFilterRepository {
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	/*
+	 * SELECT armado con Criteria: el WHERE lleva solo los filtros que vienen, en vez de un
+	 * "(:param is null or ...)" por cada uno que deja al planificador sin poder elegir el indice.
+	 */
+	@Override
+	public List<UserRow> findFilteredPage(UserFilter filter, UserCursor after, int limit) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<UserRow> query = cb.createQuery(UserRow.class);
+		Root<UserEntity> root = query.from(UserEntity.class);
+		Path<UUID> id = root.get("id");
+		Path<LocalDateTime> created = root.get("created");
+		Path<LocalDateTime> modified = root.get("modified");
+		query.select(cb.construct(UserRow.class, id, root.get("name"), root.get("email"), created, modified,
+				root.get("lastLogin"), root.get("token"), root.get("isActive"), root.get("version")));
+		
+		List<Predicate> where = new ArrayList<>();
+		if (filter.active() != null) {
+			where.add(cb.equal(root.get("isActive"), filter.active()));
+		}
+		if (filter.role() != null) {
+			where.add(cb.equal(root.get("roles"), filter.role()));
+		}
+		range(cb, where, created, filter.createdFrom(), filter.createdTo());
+		range(cb, where, modified, filter.modifiedFrom(), filter.modifiedTo());
+		if (after != null) {
+			where.add(cb.or(
+					cb.greaterThan(created, after.created()),
+					cb.and(cb.equal(created, after.created()), cb.greaterThan(id, after.id()))));
+		}
+		
+		query.where(where.toArray(Predicate[]::new));
+		query.orderBy(cb.asc(created), cb.asc(id));
+		return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+	}
+	
+	private static void range(CriteriaBuilder cb, List<Predicate> where, Path<LocalDateTime> path,
+			LocalDateTime from, LocalDateTime to) {
+		if (from != null) {
+			where.add(cb.greaterThanOrEqualTo(path, from));
+		}
+		if (to != null) {
+			where.add(cb.lessThan(path, to));
+		}
+	}
+}
@@ -1,13 +1,159 @@
 package cl.bci.user.infrastructure.persistence;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import cl.bci.user.domain.UserCredentials;
 import cl.bci.user.infrastructure.persistence.entity.UserEntity;
+import cl.bci.user.infrastructure.persistence.projection.PhoneRow;
+import cl.bci.user.infrastructure.persistence.projection.UserRow;
+import jakarta.persistence.QueryHint;
 
-public interface UserJpaRepository extends JpaRepository<UserEntity, UUID> {
+public interface UserJpaRepository extends JpaRepository<UserEntity, UUID>, UserPatchRepository, UserFilterRepository {
 	boolean existsByEmail(String email);
 	Optional<UserEntity> findByEmail(String email);
+	
+	/*
+	 * Camino caliente del login: solo las columnas necesarias para autenticar, sin entidad administrada
+	 * ni la asociacion de fonos (ni el token de hasta 1000 caracteres).
+	 */
+	@Query("""
+			select new cl.bci.user.domain.UserCredentials(u.id, u.email, u.password, u.roles, u.isActive)
+			from UserEntity u
+			where u.email = :email
+			""")
+	Optional<UserCredentials> findCredentialsByEmail(@Param("email") String email);
+	
+	/*
+	 * Paginacion por keyset sobre el indice (created, id): el costo de cada pagina
+	 * no depende de su profundidad, a diferencia de un OFFSET.
+	 * Las lecturas devuelven proyecciones y los fonos se cargan aparte con un solo IN por pagina.
+	 */
+	@Query("""
+			select new cl.bci.user.infrastructure.persistence.projection.UserRow(
+				u.id, u.name, u.email, u.created, u.modified, u.lastLogin, u.token, u.isActive, u.version)
+			from UserEntity u
+			order by u.created asc, u.id asc
+			""")
+	List<UserRow> findFirstPage(Limit limit);
+	
+	@Query("""
+			select new cl.bci.user.infrastructure.persistence.projection.UserRow(
+				u.id, u.name, u.email, u.created, u.modified, u.lastLogin, u.token, u.isActive, u.version)
+			from UserEntity u
+			where u.created > :created or (u.created = :created and u.id > :id)
+			order by u.created asc, u.id asc
+			""")
+	List<UserRow> findPageAfter(@Param("created") LocalDateTime created, @Param("id") UUID id, Limit limit);
+	
+	/*
+	 * Busqueda por prefijo en dos ramas, cada una sobre su indice (name_lc, id) o (email_lc, id):
+	 * el prefijo es un rango [from, to) en vez de un LIKE y la pagina sigue por keyset desde (key, id).
+	 * La rama del correo excluye a los que ya aparecen por el nombre.
+	 */
+	@Query("""
+			select new cl.bci.user.infrastructure.persistence.projection.UserRow(
+				u.id, u.name, u.email, u.created, u.modified, u.lastLogin, u.token, u.isActive, u.version)
+			from UserEntity u
+			where u.nameLc >= :from and u.nameLc < :to
+				and (u.nameLc > :key or (u.nameLc = :key and u.id > :id))
+			order by u.nameLc asc, u.id asc
+			""")
+	List<UserRow> searchByName(@Param("from") String from, @Param("to") String to,
+			@Param("key") String key, @Param("id") UUID id, Limit limit);
+	
+	@Query("""
+			select new cl.bci.user.infrastructure.persistence.projection.UserRow(
+				u.id, u.name, u.email, u.created, u.modified, u.lastLogin, u.token, u.isActive, u.version)
+			from UserEntity u
+			where u.emailLc >= :from and u.emailLc < :to
+				and not (u.nameLc >= :from and u.nameLc < :to)
+				and (u.emailLc > :key or (u.emailLc = :key and u.id > :id))
+			order by u.emailLc asc, u.id asc
+			""")
+	List<UserRow> searchByEmail(@Param("from") String from, @Param("to") String to,
+			@Param("key") String key, @Param("id") UUID id, Limit limit);
+	
+	@Query("""
+			select new cl.bci.user.infrastructure.persistence.projection.UserRow(
+				u.id, u.name, u.email, u.created, u.modified, u.lastLogin, u.token, u.isActive, u.version)
+			from UserEntity u
+			where u.id = :id
+			""")
+	Optional<UserRow> findRowById(@Param("id") UUID id);
+	
+	// Busqueda inversa por fono sobre el indice idx_phone_lookup; los parametros ya vienen solo con digitos
+	@Query("""
+			select new cl.bci.user.infrastructure.persistence.projection.UserRow(
+				u.id, u.name, u.email, u.created, u.modified, u.lastLogin, u.token, u.isActive, u.version)
+			from UserEntity u
+			where u.id in (
+				select p.user.id from PhoneEntity p
+				where p.countrycodeDigits = :countrycode and p.citycodeDigits = :citycode and p.numberDigits = :number)
+			order by u.created asc, u.id asc
+			""")
+	List<UserRow> findRowsByPhone(@Param("countrycode") String countrycode, @Param("citycode") String citycode,
+			@Param("number") String number);
+	
+	@Query("select u.version from UserEntity u where u.id = :id")
+	Optional<Long> findVersion(@Param("id") UUID id);
+	
+	@Modifying
+	@Query("update UserEntity u set u.password = :newHash where u.id = :id and u.password = :currentHash")
+	int replacePasswordHash(@Param("id") UUID id, @Param("currentHash") String currentHash, @Param("newHash") String newHash);
+	
+	/*
+	 * Borrado condicional (If-Match): la version va en el WHERE, 0 filas significa que no existe o que cambio.
+	 * Los fonos los elimina la BD por el ON DELETE CASCADE de fk_user.
+	 */
+	@Modifying
+	@Query("delete from UserEntity u where u.id = :id and u.version = :version")
+	int deleteByIdAndVersion(@Param("id") UUID id, @Param("version") long version);
+	
+	// Un solo DELETE sin cargar el usuario ni sus fonos, el conteo de filas distingue el 404
+	@Modifying
+	@Query("delete from UserEntity u where u.id = :id")
+	int deleteRowById(@Param("id") UUID id);
+	
+	@Modifying
+	@Query("delete from UserEntity u where u.id in :ids")
+	int deleteRowsByIds(@Param("ids") Collection<UUID> ids);
+	
+	@Query("""
+			select new cl.bci.user.infrastructure.persistence.projection.PhoneRow(
+				p.user.id, p.number, p.citycode, p.countrycode)
+			from PhoneEntity p
+			where p.user.id in :userIds
+			order by p.id
+			""")
+	List<PhoneRow> findPhoneRows(@Param("userIds") Collection<UUID> userIds);
+	
+	/*
+	 * Recorre toda la tabla con un cursor JDBC (fetch size) en vez de materializar la lista.
+	 * Debe consumirse dentro de una transaccion y cerrarse al terminar.
+	 */
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("""
+			select new cl.bci.user.infrastructure.persistence.projection.UserRow(
+				u.id, u.name, u.email, u.created, u.modified, u.lastLogin, u.token, u.isActive, u.version)
+			from UserEntity u
+			order by u.created asc, u.id asc
+			""")
+	Stream<UserRow> streamAll();
+	
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("select u.email from UserEntity u")
+	Stream<String> streamEmails();
 }
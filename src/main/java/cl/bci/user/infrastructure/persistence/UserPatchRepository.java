@@ -0,0 +1,17 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Fragmento de UserJpaRepository para actualizaciones parciales.
+ */
+public interface UserPatchRepository {
+	
+	/**
+	 * Ejecuta un solo UPDATE con las columnas indicadas (atributo de UserEntity -> valor) e incrementa la version.
+	 * Si expectedVersion no es null se agrega al WHERE.
+	 * Retorna la cantidad de filas modificadas, 0 si el usuario no existe o su version no coincide.
+	 */
+	int patch(UUID id, Long expectedVersion, Map<String, Object> changes);
+}
@@ -0,0 +1,42 @@
+package cl.bci.user.infrastructure.persistence;
+
+import java.util.Map;
+import java.util.UUID;
+
+import cl.bci.user.infrastructure.persistence.entity.UserEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+class UserPatchRepositoryImpl implements UserPatchRepository {
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	/*
+	 * UPDATE armado con Criteria: el SET lleva solo lo que vino en el patch, sin leer la fila antes
+	 * y sin reescribir las columnas que no cambian. Un UPDATE masivo no pasa por @Version,
+	 * por eso la version se incrementa aqui.
+	 */
+	@Override
+	public int patch(UUID id, Long expectedVersion, Map<String, Object> changes) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaUpdate<UserEntity> update = cb.createCriteriaUpdate(UserEntity.class);
+		Root<UserEntity> root = update.from(UserEntity.class);
+		changes.forEach(update::set);
+		
+		Path<Long> version = root.get("version");
+		update.set(version, cb.sum(version, 1L));
+		
+		Predicate where = cb.equal(root.get("id"), id);
+		if (expectedVersion != null) {
+			where = cb.and(where, cb.equal(version, expectedVersion));
+		}
+		update.where(where);
+		return entityManager.createQuery(update).executeUpdate();
+	}
+}
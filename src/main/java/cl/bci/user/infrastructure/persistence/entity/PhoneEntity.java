@@ -2,24 +2,41 @@ package cl.bci.user.infrastructure.persistence.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 @Entity
 @Table(name="phone")
 public class PhoneEntity {
+	/*
+	 * Secuencia con optimizador pooled: Hibernate reserva bloques de 50 ids con una sola llamada
+	 * y puede agrupar los INSERT en batch (con IDENTITY el batch queda deshabilitado).
+	 */
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "phone_seq")
+	@SequenceGenerator(name = "phone_seq", sequenceName = "phone_seq", allocationSize = 50)
 	private Long id;
 	private String number;
 	private String citycode;
 	private String countrycode;
 	
+	// columnas generadas por la BD con solo los digitos, para la busqueda por fono
+	@Column(name = "countrycode_digits", insertable = false, updatable = false)
+	private String countrycodeDigits;
+	
+	@Column(name = "citycode_digits", insertable = false, updatable = false)
+	private String citycodeDigits;
+	
+	@Column(name = "number_digits", insertable = false, updatable = false)
+	private String numberDigits;
+	
 	@ManyToOne
 	@JoinColumn(name = "user_id", nullable = false)
 	@JsonIgnore
@@ -61,6 +78,15 @@ public class PhoneEntity {
 	public void setCountrycode(String countrycode) {
 		this.countrycode = countrycode;
 	}
+	public String getCountrycodeDigits() {
+		return countrycodeDigits;
+	}
+	public String getCitycodeDigits() {
+		return citycodeDigits;
+	}
+	public String getNumberDigits() {
+		return numberDigits;
+	}
 
 	public UserEntity getUser() {
 		return user;
@@ -1,25 +1,31 @@
 package cl.bci.user.infrastructure.persistence.entity;
 
-import java.sql.Types;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
 import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import org.springframework.data.domain.Persistable;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 
 @Entity
 @Table(name="users")
-public class UserEntity {    
+public class UserEntity implements Persistable<UUID> {    
+	// UUID v7 almacenado como BINARY(16); en la API se sigue exponiendo en su forma de texto
 	@Id
-	@JdbcTypeCode(Types.VARCHAR)
-	@Column(length = 36, nullable = false, unique = true)
+	@JdbcTypeCode(SqlTypes.BINARY)
+	@Column(length = 16, nullable = false, unique = true)
 	private UUID id;
 	
 	private String name;
@@ -37,9 +43,39 @@ public class UserEntity {
 	@Column(name = "is_active")
 	private boolean isActive;
 	
+	// se incrementa en cada escritura y se entrega como ETag en la API
+	@Version
+	private long version;
+	
+	// columnas generadas por la BD (LOWER de name y email), solo se usan en la busqueda por prefijo
+	@Column(name = "name_lc", insertable = false, updatable = false)
+	private String nameLc;
+	
+	@Column(name = "email_lc", insertable = false, updatable = false)
+	private String emailLc;
+	
 	@OneToMany(mappedBy = "user", cascade = CascadeType.ALL, orphanRemoval = true)
 	private List<PhoneEntity> phones;
 	
+	/*
+	 * El id se asigna antes de guardar, por lo que Spring Data no puede deducir si la entidad es nueva
+	 * y haria un merge (SELECT previo). Con este flag save() hace persist directo: un solo INSERT.
+	 */
+	@Transient
+	private boolean newEntity = true;
+	
+	@Override
+	public boolean isNew() {
+		return newEntity;
+	}
+	
+	@PostLoad
+	@PostPersist
+	void markNotNew() {
+		this.newEntity = false;
+	}
+	
+	@Override
 	public UUID getId() {
 		return id;
 	}
@@ -104,6 +140,22 @@ public class UserEntity {
 		this.token = token;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
+	public void setVersion(long version) {
+		this.version = version;
+	}
+
+	public String getNameLc() {
+		return nameLc;
+	}
+
+	public String getEmailLc() {
+		return emailLc;
+	}
+
 	public boolean isActive() {
 		return isActive;
 	}
@@ -1,16 +1,23 @@
 package cl.bci.user.infrastructure.persistence.mapper;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
+import org.springframework.stereotype.Component;
+
 import cl.bci.user.domain.Phone;
 import cl.bci.user.domain.User;
 import cl.bci.user.infrastructure.persistence.entity.PhoneEntity;
 import cl.bci.user.infrastructure.persistence.entity.UserEntity;
+import cl.bci.user.infrastructure.persistence.projection.PhoneRow;
+import cl.bci.user.infrastructure.persistence.projection.UserRow;
 
+@Component
 public class UserEntityMapper {
 	
 	public User toDomain(UserEntity entity) {
-		return new User(
+		User user = new User(
 				entity.getId(),
 				entity.getName(),
 				entity.getEmail(),
@@ -23,6 +30,31 @@ public class UserEntityMapper {
 				entity.isActive(),
 				entity.getRoles()
 			);
+		user.setVersion(entity.getVersion());
+		return user;
+	}
+	
+	/**
+	 * Usuario armado desde las proyecciones de lectura. Las proyecciones no traen el hash de la contraseña.
+	 */
+	public User toDomain(UserRow row, List<PhoneRow> phones) {
+		User user = new User(
+				row.id(),
+				row.name(),
+				row.email(),
+				null,
+				phones.stream()
+						.map(p -> new Phone(null, p.number(), p.citycode(), p.countrycode()))
+						.collect(Collectors.toList()),
+				row.created(),
+				row.modified(),
+				row.lastLogin(),
+				row.token(),
+				row.active(),
+				null
+			);
+		user.setVersion(row.version());
+		return user;
 	}
 	
 	private Phone toDomain(PhoneEntity phoneEntity) {
@@ -49,17 +81,20 @@ public class UserEntityMapper {
 		userEntity.setLastLogin(user.getLastLogin());
 		userEntity.setToken(user.getToken());
 		userEntity.setActive(user.isActive());
+		userEntity.setRoles(user.getRoles());
+		userEntity.setVersion(user.getVersion());
 		
+		// lista mutable: la coleccion se sigue editando una vez administrada por Hibernate
 		userEntity.setPhones(
 				user.getPhones().stream()
 				.map(phone -> toEntity(phone, userEntity))
-				.collect(Collectors.toList())
+				.collect(Collectors.toCollection(ArrayList::new))
 		);
 		
 		return userEntity;
 	}
 	
-	private PhoneEntity toEntity(Phone phone, UserEntity userEntity) {
+	public PhoneEntity toEntity(Phone phone, UserEntity userEntity) {
 		return new PhoneEntity(
 				phone.getId(),
 				phone.getNumber(),
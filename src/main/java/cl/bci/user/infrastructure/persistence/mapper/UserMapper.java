@@ -1,42 +1,45 @@
 package cl.bci.user.infrastructure.persistence.mapper;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Component;
 
+import cl.bci.user.domain.Phone;
 import cl.bci.user.domain.User;
-import cl.bci.user.infrastructure.persistence.entity.PhoneEntity;
-import cl.bci.user.infrastructure.persistence.entity.UserEntity;
 import cl.bci.user.infrastructure.rest.dto.LoginRequest;
+import cl.bci.user.infrastructure.rest.dto.PhoneRequest;
 import cl.bci.user.infrastructure.rest.dto.UserRequest;
 
 @Component
 public class UserMapper {
-	public UserEntity toEntity(UserRequest request, UUID id, String token, LocalDateTime now) {
-		UserEntity user = new UserEntity();
-		user.setId(id);
-		user.setName(request.getName());
-		user.setEmail(request.getEmail());
-		user.setPassword(request.getPassword());
-		user.setCreated(now);
-		user.setModified(now);
-		user.setLastLogin(now);
-		user.setActive(true);
-		user.setToken(token);
-		user.setRoles(request.getRoles().toUpperCase());
-		
-		List<PhoneEntity> phones = Optional.ofNullable(request.getPhones())
+	public User toDomain(UserRequest request, UUID id, String token, LocalDateTime now) {
+		return new User(
+				id,
+				request.getName(),
+				request.getEmail(),
+				request.getPassword(),
+				toPhones(request.getPhones()),
+				now,
+				now,
+				now,
+				token,
+				true,
+				request.getRoles().toUpperCase()
+			);
+	}
+	
+	public List<Phone> toPhones(List<PhoneRequest> phones) {
+		return Optional.ofNullable(phones)
 				.orElse(Collections.emptyList())
 				.stream()
-				.map(p -> new PhoneEntity(null, p.getNumber(), p.getCitycode(), p.getContrycode(), user))
-				.toList();
-		
-		user.setPhones(phones);
-		return user;
+				.map(p -> new Phone(null, p.getNumber(), p.getCitycode(), p.getContrycode()))
+				.collect(Collectors.toCollection(ArrayList::new));
 	}
 	
 	public User toUser(LoginRequest login) {
@@ -46,4 +49,4 @@ public class UserMapper {
 		
 		return user;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,10 @@
+package cl.bci.user.infrastructure.persistence.projection;
+
+import java.util.UUID;
+
+public record PhoneRow(
+		UUID userId,
+		String number,
+		String citycode,
+		String countrycode
+) {}
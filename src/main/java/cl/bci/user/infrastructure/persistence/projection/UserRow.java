@@ -0,0 +1,19 @@
+package cl.bci.user.infrastructure.persistence.projection;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Proyeccion de solo lectura de la tabla users, sin entidades administradas ni dirty-checking.
+ */
+public record UserRow(
+		UUID id,
+		String name,
+		String email,
+		LocalDateTime created,
+		LocalDateTime modified,
+		LocalDateTime lastLogin,
+		String token,
+		boolean active,
+		long version
+) {}
@@ -8,15 +8,21 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import cl.bci.common.exception.CredencialesInvalidasException;
+import cl.bci.common.exception.UserNotFoundException;
+import cl.bci.common.security.LoginThrottle;
 import cl.bci.user.application.service.LoginServicePort;
+import cl.bci.user.domain.AuthTokens;
 import cl.bci.user.domain.User;
 import cl.bci.user.infrastructure.persistence.mapper.UserMapper;
 import cl.bci.user.infrastructure.rest.dto.LoginRequest;
+import cl.bci.user.infrastructure.rest.dto.RefreshRequest;
 import cl.bci.user.infrastructure.rest.dto.TokenResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 
 @Tag(name = "LoginController", description = "Permite realizar login y si esta OK devuelve token de acceso")
@@ -26,10 +32,12 @@ public class LoginController {
 	
 	private final LoginServicePort loginService;
 	private final UserMapper userMapper;
+	private final LoginThrottle loginThrottle;
 	
-	public LoginController(LoginServicePort loginService, UserMapper userMapper) {
+	public LoginController(LoginServicePort loginService, UserMapper userMapper, LoginThrottle loginThrottle) {
 		this.loginService = loginService;
 		this.userMapper = userMapper;
+		this.loginThrottle = loginThrottle;
 	}
 
 
@@ -39,6 +47,8 @@ public class LoginController {
         @ApiResponse(responseCode = "404", description = "Usuario no encontrado"),
         @ApiResponse(responseCode = "401", description = "Password incorrecta"),
         @ApiResponse(responseCode = "401", description = "Rol no autorizado"),
+        @ApiResponse(responseCode = "429", description = "Demasiados intentos, reintentar segun Retry-After"),
+        @ApiResponse(responseCode = "503", description = "Servicio ocupado, reintentar segun Retry-After"),
         @ApiResponse(responseCode = "500", description = "Error interno del servidor")
     })
 	@PostMapping(
@@ -46,19 +56,51 @@ public class LoginController {
 		consumes = "application/json",
 		produces = "application/json"
 	)
-    public ResponseEntity<TokenResponse> login(@Valid @RequestBody LoginRequest request){
+    public ResponseEntity<TokenResponse> login(@Valid @RequestBody LoginRequest request, HttpServletRequest httpRequest){
+		// antes de cualquier consulta a la BD o calculo de BCrypt
+		String clientAddress = httpRequest.getRemoteAddr();
+		loginThrottle.acquire(request.getEmail(), clientAddress);
 		
     	User user = userMapper.toUser(request);
     	
     	
-    	Optional<String> tknOptional = this.loginService.login(user);
+    	Optional<AuthTokens> tknOptional;
+    	boolean failed = false;
+    	try {
+    		tknOptional = this.loginService.login(user);
+    	} catch (CredencialesInvalidasException | UserNotFoundException e) {
+    		failed = true;
+    		throw e;
+    	} finally {
+    		// solo los intentos fallidos quedan descontados del correo y del cliente
+    		if (!failed) {
+    			loginThrottle.release(request.getEmail(), clientAddress);
+    		}
+    	}
     	
-    	String token = tknOptional.orElseThrow(
+    	AuthTokens tokens = tknOptional.orElseThrow(
                 () -> new IllegalStateException("Error interno: Token no pudo ser generado.")
             );
     	
-    	TokenResponse tokenResponse = new TokenResponse(user.getEmail(), token);
+    	TokenResponse tokenResponse = new TokenResponse(user.getEmail(), tokens.accessToken(), tokens.refreshToken());
         return ResponseEntity.ok(tokenResponse);
     }
+	
+	
+	@Operation(summary = "Renovar token", description = "Entrega un nuevo access token y rota el refresh token, sin volver a autenticar la contraseña")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Tokens renovados"),
+        @ApiResponse(responseCode = "400", description = "Refresh token vacio"),
+        @ApiResponse(responseCode = "401", description = "Refresh token invalido, expirado o reutilizado")
+    })
+	@PostMapping(
+		path = "/refresh",
+		consumes = "application/json",
+		produces = "application/json"
+	)
+    public ResponseEntity<TokenResponse> refresh(@Valid @RequestBody RefreshRequest request){
+    	AuthTokens tokens = this.loginService.refresh(request.refreshToken());
+        return ResponseEntity.ok(new TokenResponse(tokens.email(), tokens.accessToken(), tokens.refreshToken()));
+    }
 
 }
@@ -1,20 +1,48 @@
 package cl.bci.user.infrastructure.rest;
 
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import cl.bci.common.dto.Versioned;
+import cl.bci.common.helper.Constants;
+import cl.bci.common.helper.ETags;
 import cl.bci.user.application.service.UserServicePort;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.infrastructure.rest.dto.UserDeleteResponse;
+import cl.bci.user.infrastructure.rest.dto.UserPageResponse;
+import cl.bci.user.infrastructure.rest.dto.UserPatchRequest;
 import cl.bci.user.infrastructure.rest.dto.UserRequest;
 import cl.bci.user.infrastructure.rest.dto.UserResponse;
 import io.swagger.v3.oas.annotations.Operation;
@@ -29,16 +57,19 @@ import jakarta.validation.Valid;
 public class UserController {
 	
 	private final UserServicePort service;
+	private final ObjectMapper objectMapper;
 	
-	public UserController(UserServicePort service) {
+	public UserController(UserServicePort service, ObjectMapper objectMapper) {
 		this.service = service;
+		this.objectMapper = objectMapper;
 	}
 	
 	@Operation(summary = "Inserta los datos de un User", description = "Crea un nuevo usuario con los enviados")
 	@ApiResponses({
 		@ApiResponse(responseCode = "201", description = "Creacion del user exitosa"),
 		@ApiResponse(responseCode = "404", description = "Proveedor no encontrado"),
-		@ApiResponse(responseCode = "500", description = "Error interno del servidor")
+		@ApiResponse(responseCode = "500", description = "Error interno del servidor"),
+		@ApiResponse(responseCode = "503", description = "Servicio ocupado, reintentar segun Retry-After")
     })
 	@PostMapping
 	public ResponseEntity<UserResponse> insert(@RequestBody @Valid UserRequest userRequest) {
@@ -47,53 +78,234 @@ public class UserController {
 	}
 	
 	
-	@Operation(summary = "Actualiza los datos de un User", description = "Actualiza nombe, password, si esta activo, lista de telefonos")
+	@Operation(summary = "Actualiza los datos de un User", description = "Actualiza nombe, password, si esta activo, lista de telefonos. "
+			+ "Con If-Match solo se actualiza si el ETag coincide con la version actual")
 	@ApiResponses({
 		@ApiResponse(responseCode = "200", description = "Actualizacion del user exitosa"),
 		@ApiResponse(responseCode = "404", description = "User no encontrado"),
+		@ApiResponse(responseCode = "409", description = "El user fue modificado por otra solicitud"),
+		@ApiResponse(responseCode = "412", description = "If-Match no coincide con la version actual"),
 		@ApiResponse(responseCode = "500", description = "Error interno del servidor")
 	})
 	@PutMapping("/{id}")
-	public ResponseEntity<UserResponse> update(@PathVariable("id") UUID id, @RequestBody @Valid UserRequest userRequest) {
-		UserResponse updatedUser = service.update(id, userRequest);
-		return ResponseEntity.ok(updatedUser);
+	public ResponseEntity<UserResponse> update(@PathVariable("id") UUID id, @RequestBody @Valid UserRequest userRequest,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		Versioned<UserResponse> updatedUser = service.update(id, userRequest, ETags.parseIfMatch(ifMatch));
+		return ResponseEntity.ok().eTag(ETags.of(updatedUser.version())).body(updatedUser.value());
+	}
+	
+	
+	@Operation(summary = "Actualiza parcialmente un User", description = "Recibe un JSON Merge Patch y actualiza solo los campos enviados "
+			+ "(name, password, isactive, roles, phones). El correo no se puede modificar. Acepta If-Match")
+	@ApiResponses({
+		@ApiResponse(responseCode = "200", description = "Actualizacion del user exitosa"),
+		@ApiResponse(responseCode = "400", description = "Campos inválidos"),
+		@ApiResponse(responseCode = "404", description = "User no encontrado"),
+		@ApiResponse(responseCode = "412", description = "If-Match no coincide con la version actual"),
+		@ApiResponse(responseCode = "500", description = "Error interno del servidor")
+	})
+	@PatchMapping(path = "/{id}", consumes = {Constants.MERGE_PATCH_JSON, MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<UserResponse> patch(@PathVariable("id") UUID id, @RequestBody JsonNode body,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		Versioned<UserResponse> updatedUser = service.patch(id, UserPatchRequest.from(body, objectMapper), ETags.parseIfMatch(ifMatch));
+		return ResponseEntity.ok().eTag(ETags.of(updatedUser.version())).body(updatedUser.value());
 	}
 	
 	
-	@Operation(summary = "Obtiene una lista de User", description = "Obtiene todos los usuarios registrados en la BD")
+	@Operation(summary = "Obtiene una lista de User", description = "Obtiene una pagina de usuarios ordenados por fecha de creacion, "
+			+ "opcionalmente filtrados por isactive, role y rangos de created/modified (ISO-8601, desde inclusivo y hasta exclusivo). "
+			+ "Si existen mas registros, el header X-Next-Cursor trae el cursor para pedir la pagina siguiente con los mismos filtros")
 	@ApiResponses({
 		@ApiResponse(responseCode = "200", description = "Lsta de users exitosa"),
+		@ApiResponse(responseCode = "400", description = "Cursor o filtros inválidos"),
 		@ApiResponse(responseCode = "500", description = "Error interno del servidor")
 	})
 	@GetMapping
-	public ResponseEntity<List<UserResponse>> findAll() {
-		return ResponseEntity.ok(service.findAll());
+	public ResponseEntity<List<UserResponse>> findAll(
+			@RequestParam(name = "limit", defaultValue = "20") int limit,
+			@RequestParam(name = "cursor", required = false) String cursor,
+			@RequestParam(name = "isactive", required = false) Boolean active,
+			@RequestParam(name = "role", required = false) String role,
+			@RequestParam(name = "createdFrom", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime createdFrom,
+			@RequestParam(name = "createdTo", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime createdTo,
+			@RequestParam(name = "modifiedFrom", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime modifiedFrom,
+			@RequestParam(name = "modifiedTo", required = false) @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime modifiedTo) {
+		UserFilter filter = new UserFilter(active, role, createdFrom, createdTo, modifiedFrom, modifiedTo);
+		UserPageResponse page = service.findPage(filter, limit, cursor);
+		
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.nextCursor() != null) {
+			response.header(Constants.NEXT_CURSOR, page.nextCursor());
+		}
+		return response.body(page.users());
+	}
+	
+	
+	@Operation(summary = "Verifica si un correo esta registrado", description = "Para formularios de registro: responde 200 si el correo "
+			+ "ya esta registrado y 404 si esta disponible, sin cuerpo. Un correo que nunca se registro se responde sin consultar la BD")
+	@ApiResponses({
+		@ApiResponse(responseCode = "200", description = "El correo ya esta registrado"),
+		@ApiResponse(responseCode = "404", description = "El correo esta disponible")
+	})
+	@RequestMapping(method = RequestMethod.HEAD, params = "email")
+	public ResponseEntity<Void> emailExists(@RequestParam(name = "email") String email) {
+		return service.emailExists(email) ? ResponseEntity.ok().build() : ResponseEntity.notFound().build();
+	}
+	
+	
+	@Operation(summary = "Busca User por prefijo", description = "Usuarios cuyo nombre o correo empieza con q, sin distinguir mayusculas, "
+			+ "ordenados por la coincidencia. Si existen mas registros, el header X-Next-Cursor trae el cursor para pedir la pagina siguiente")
+	@ApiResponses({
+		@ApiResponse(responseCode = "200", description = "Busqueda de users exitosa"),
+		@ApiResponse(responseCode = "400", description = "Texto a buscar vacio o cursor inválido"),
+		@ApiResponse(responseCode = "500", description = "Error interno del servidor")
+	})
+	@GetMapping("/search")
+	public ResponseEntity<List<UserResponse>> search(
+			@RequestParam(name = "q") String query,
+			@RequestParam(name = "limit", defaultValue = "20") int limit,
+			@RequestParam(name = "cursor", required = false) String cursor) {
+		UserPageResponse page = service.search(query, limit, cursor);
+		
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.nextCursor() != null) {
+			response.header(Constants.NEXT_CURSOR, page.nextCursor());
+		}
+		return response.body(page.users());
 	}
 	
 	
-	@Operation(summary = "Obtiene un User", description = "Busca un usuario en particular por ID")
+	@Operation(summary = "Busca User por fono", description = "Usuarios que registraron el fono indicado. "
+			+ "Solo se comparan los digitos: +56 y 56 son el mismo codigo de pais")
+	@ApiResponses({
+		@ApiResponse(responseCode = "200", description = "Busqueda de users exitosa"),
+		@ApiResponse(responseCode = "400", description = "Fono sin digitos"),
+		@ApiResponse(responseCode = "500", description = "Error interno del servidor")
+	})
+	@GetMapping("/by-phone")
+	public ResponseEntity<List<UserResponse>> findByPhone(
+			@RequestParam(name = "countrycode") String countrycode,
+			@RequestParam(name = "citycode") String citycode,
+			@RequestParam(name = "number") String number) {
+		return ResponseEntity.ok(service.findByPhone(countrycode, citycode, number));
+	}
+	
+	
+	@Operation(summary = "Exporta todos los User", description = "Entrega el directorio completo a medida que se lee de la BD. "
+			+ "Con Accept: application/x-ndjson se entrega un usuario por linea, en otro caso un arreglo JSON")
+	@ApiResponses({
+		@ApiResponse(responseCode = "200", description = "Exportacion de users exitosa"),
+		@ApiResponse(responseCode = "500", description = "Error interno del servidor")
+	})
+	@GetMapping(path = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+	public ResponseEntity<StreamingResponseBody> export(
+			@RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+		boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+		
+		StreamingResponseBody body = out -> {
+			try {
+				if (ndjson) {
+					writeNdjson(out);
+				} else {
+					writeJsonArray(out);
+				}
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+		};
+		
+		return ResponseEntity.ok()
+				.contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+				.body(body);
+	}
+	
+	
+	@Operation(summary = "Obtiene un User", description = "Busca un usuario en particular por ID. La respuesta trae un ETag; "
+			+ "con If-None-Match se responde 304 si el usuario no ha cambiado")
 	@ApiResponses({
 		@ApiResponse(responseCode = "200", description = "busqueda de User exitosa"),
+		@ApiResponse(responseCode = "304", description = "El User no ha cambiado"),
 		@ApiResponse(responseCode = "404", description = "User no encontrado"),
 		@ApiResponse(responseCode = "500", description = "Error interno del servidor")
 	})
 	@GetMapping("/{id}")
-	public ResponseEntity<UserResponse> findById(@PathVariable("id") UUID id) {
-		UserResponse usuario = service.findById(id);
-		return ResponseEntity.ok(usuario);
+	public ResponseEntity<UserResponse> findById(@PathVariable("id") UUID id, WebRequest request) {
+		// con If-None-Match primero se consulta solo la version, sin armar la respuesta completa
+		if (request.getHeader(HttpHeaders.IF_NONE_MATCH) != null) {
+			String etag = ETags.of(service.findVersion(id));
+			if (request.checkNotModified(etag)) {
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+			}
+		}
+		Versioned<UserResponse> usuario = service.findById(id);
+		return ResponseEntity.ok().eTag(ETags.of(usuario.version())).body(usuario.value());
 	}
 	
 	
-	@Operation(summary = "Elimina un User", description = "Elimina un usuario de la BD")
+	@Operation(summary = "Elimina un User", description = "Elimina un usuario de la BD. Con If-Match solo se elimina si el ETag coincide")
 	@ApiResponses({
-		@ApiResponse(responseCode = "200", description = "Eliminacion de User exitosa"),
+		@ApiResponse(responseCode = "204", description = "Eliminacion de User exitosa"),
 		@ApiResponse(responseCode = "404", description = "User no encontrado"),
+		@ApiResponse(responseCode = "412", description = "If-Match no coincide con la version actual"),
 		@ApiResponse(responseCode = "500", description = "Error interno del servidor")
 	})
 	@DeleteMapping("/{id}")
-	public ResponseEntity<Void> delete(@PathVariable("id") UUID id) {
-		service.delete(id);
+	public ResponseEntity<Void> delete(@PathVariable("id") UUID id,
+			@RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+		service.delete(id, ETags.parseIfMatch(ifMatch));
 		return ResponseEntity.noContent().build();
 	}
+	
+	
+	@Operation(summary = "Elimina varios User", description = "Recibe una lista de IDs y los elimina por bloques, una sentencia por bloque. "
+			+ "Los IDs inexistentes se ignoran")
+	@ApiResponses({
+		@ApiResponse(responseCode = "200", description = "Eliminacion de users exitosa"),
+		@ApiResponse(responseCode = "400", description = "Lista vacía o demasiado grande"),
+		@ApiResponse(responseCode = "500", description = "Error interno del servidor")
+	})
+	@DeleteMapping
+	public ResponseEntity<UserDeleteResponse> deleteAll(@RequestBody List<UUID> ids) {
+		return ResponseEntity.ok(service.deleteAll(ids));
+	}
+	
+	
+	private void writeNdjson(OutputStream out) {
+		boolean[] first = {true};
+		service.streamAll(user -> {
+			try {
+				out.write(objectMapper.writeValueAsBytes(user));
+				out.write('\n');
+				flushFirst(out, first);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+	
+	private void writeJsonArray(OutputStream out) throws IOException {
+		// sin flush por registro: se deja que el buffer del generador agrupe las escrituras
+		ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+			generator.writeStartArray();
+			boolean[] first = {true};
+			service.streamAll(user -> {
+				try {
+					writer.writeValue(generator, user);
+					flushFirst(generator, first);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			generator.writeEndArray();
+		}
+	}
+	
+	// El primer registro se envia de inmediato, el resto sale cuando se llena el buffer de salida
+	private static void flushFirst(Flushable out, boolean[] first) throws IOException {
+		if (first[0]) {
+			first[0] = false;
+			out.flush();
+		}
+	}
 }
-
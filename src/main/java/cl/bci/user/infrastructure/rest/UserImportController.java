@@ -0,0 +1,65 @@
+package cl.bci.user.infrastructure.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cl.bci.user.application.service.UserImportServicePort;
+import cl.bci.user.infrastructure.rest.dto.UserImportResult;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+@RestController
+@RequestMapping("/users")
+@Tag(name = "Usuarios", description = "Operaciones Crud para los usuarios")
+public class UserImportController {
+	
+	private final UserImportServicePort importService;
+	private final ObjectMapper objectMapper;
+	
+	public UserImportController(UserImportServicePort importService, ObjectMapper objectMapper) {
+		this.importService = importService;
+		this.objectMapper = objectMapper;
+	}
+	
+	@Operation(summary = "Importacion masiva de User", description = "Recibe un User por linea (NDJSON) y responde, tambien en NDJSON, "
+			+ "el resultado de cada registro a medida que se procesan los bloques")
+	@ApiResponses({
+		@ApiResponse(responseCode = "200", description = "Importacion procesada, revisar el estado de cada linea"),
+		@ApiResponse(responseCode = "500", description = "Error interno del servidor")
+	})
+	@PostMapping(path = "/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		response.setStatus(HttpServletResponse.SC_OK);
+		response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+		OutputStream out = response.getOutputStream();
+		
+		try {
+			importService.importUsers(request.getInputStream(), results -> {
+				try {
+					for (UserImportResult result : results) {
+						out.write(objectMapper.writeValueAsBytes(result));
+						out.write('\n');
+					}
+					// cada bloque procesado se envia de inmediato
+					out.flush();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+}
@@ -0,0 +1,8 @@
+package cl.bci.user.infrastructure.rest.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public record RefreshRequest(
+		@NotBlank(message = "El refresh token no puede estar vacío")
+		String refreshToken
+) {}
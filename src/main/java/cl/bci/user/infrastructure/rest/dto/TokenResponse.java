@@ -2,5 +2,6 @@ package cl.bci.user.infrastructure.rest.dto;
 
 public record TokenResponse(
 		String email,
-		String token
+		String token,
+		String refreshToken
 ) {}
@@ -0,0 +1,9 @@
+package cl.bci.user.infrastructure.rest.dto;
+
+/**
+ * Resultado del borrado masivo: ids distintos recibidos y usuarios efectivamente eliminados.
+ */
+public record UserDeleteResponse(
+		int requested,
+		int deleted
+) {}
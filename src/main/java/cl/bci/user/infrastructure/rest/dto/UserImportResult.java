@@ -0,0 +1,32 @@
+package cl.bci.user.infrastructure.rest.dto;
+
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Resultado de un registro de la importacion masiva, se entrega una linea NDJSON por registro.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record UserImportResult(
+		int line,
+		String email,
+		Status status,
+		UUID id,
+		String mensaje
+) {
+	public enum Status {
+		CREATED,
+		INVALID,
+		DUPLICATED,
+		ERROR
+	}
+	
+	public static UserImportResult created(int line, String email, UUID id) {
+		return new UserImportResult(line, email, Status.CREATED, id, null);
+	}
+	
+	public static UserImportResult failed(int line, String email, Status status, String mensaje) {
+		return new UserImportResult(line, email, status, null, mensaje);
+	}
+}
@@ -0,0 +1,8 @@
+package cl.bci.user.infrastructure.rest.dto;
+
+import java.util.List;
+
+public record UserPageResponse(
+		List<UserResponse> users,
+		String nextCursor
+) {}
@@ -0,0 +1,86 @@
+package cl.bci.user.infrastructure.rest.dto;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cl.bci.common.exception.UserException;
+
+/**
+ * Cambios parciales de un usuario segun JSON Merge Patch (RFC 7396).
+ * Un campo en null significa que no vino en el documento y no se modifica.
+ */
+public record UserPatchRequest(
+		String name,
+		String password,
+		Boolean active,
+		String roles,
+		List<PhoneRequest> phones
+) {
+	
+	public boolean isEmpty() {
+		return name == null && password == null && active == null && roles == null && phones == null;
+	}
+	
+	/**
+	 * Lee el documento merge-patch. Todas las columnas del usuario son obligatorias, por lo que
+	 * un null explicito (que en merge-patch significa borrar) se rechaza, igual que el correo que no se puede cambiar.
+	 */
+	public static UserPatchRequest from(JsonNode body, ObjectMapper objectMapper) {
+		if (body == null || !body.isObject()) {
+			throw new UserException("El cuerpo debe ser un objeto JSON");
+		}
+		
+		String name = null;
+		String password = null;
+		Boolean active = null;
+		String roles = null;
+		List<PhoneRequest> phones = null;
+		
+		Iterator<Map.Entry<String, JsonNode>> fields = body.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			JsonNode value = field.getValue();
+			if (value.isNull()) {
+				throw new UserException("El campo " + field.getKey() + " no se puede eliminar");
+			}
+			switch (field.getKey()) {
+				case "name" -> name = text(field.getKey(), value);
+				case "password" -> password = text(field.getKey(), value);
+				case "roles" -> roles = text(field.getKey(), value);
+				case "isactive" -> {
+					if (!value.isBoolean()) {
+						throw new UserException("El campo isactive debe ser booleano");
+					}
+					active = value.booleanValue();
+				}
+				case "phones" -> phones = phones(value, objectMapper);
+				case "email" -> throw new UserException("El correo no se puede modificar");
+				default -> throw new UserException("Campo desconocido: " + field.getKey());
+			}
+		}
+		return new UserPatchRequest(name, password, active, roles, phones);
+	}
+	
+	private static String text(String field, JsonNode value) {
+		if (!value.isTextual()) {
+			throw new UserException("El campo " + field + " debe ser texto");
+		}
+		return value.textValue();
+	}
+	
+	private static List<PhoneRequest> phones(JsonNode value, ObjectMapper objectMapper) {
+		if (!value.isArray()) {
+			throw new UserException("El campo phones debe ser una lista");
+		}
+		try {
+			return objectMapper.readerForListOf(PhoneRequest.class).readValue(value);
+		} catch (IOException e) {
+			throw new UserException("Lista de teléfonos inválida", e);
+		}
+	}
+}
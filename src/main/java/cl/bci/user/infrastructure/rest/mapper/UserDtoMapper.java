@@ -1,22 +1,19 @@
 package cl.bci.user.infrastructure.rest.mapper;
 
-import java.time.LocalDateTime;
 import java.util.List;
 
 import org.springframework.stereotype.Component;
 
-import cl.bci.user.infrastructure.persistence.entity.PhoneEntity;
-import cl.bci.user.infrastructure.persistence.entity.UserEntity;
+import cl.bci.user.domain.User;
 import cl.bci.user.infrastructure.rest.dto.PhoneResponse;
-import cl.bci.user.infrastructure.rest.dto.UserRequest;
 import cl.bci.user.infrastructure.rest.dto.UserResponse;
 
 @Component
 public class UserDtoMapper {
 	
-	public UserResponse toResponse(UserEntity user) {
+	public UserResponse toResponse(User user) {
 		List<PhoneResponse> phones = user.getPhones().stream()
-				.map(p -> new PhoneResponse(p.getNumber(), p.getCitycode(), p.getCountrycode()))
+				.map(p -> new PhoneResponse(p.getNumber(), p.getCitycode(), p.getContrycode()))
 				.toList();
 		
 		return new UserResponse(
@@ -32,8 +29,12 @@ public class UserDtoMapper {
 			);	
 	}
 	
+	public List<UserResponse> toResponses(List<User> users) {
+		return users.stream().map(this::toResponse).toList();
+	}
+	
 	
-	public UserResponse toResponseSucces(UserEntity user) {
+	public UserResponse toResponseSucces(User user) {
 		return new UserResponse(
 				user.getId(),
 				null,
@@ -47,25 +48,4 @@ public class UserDtoMapper {
 			);
 		
 	}
-	
-	public void mapUpdate(UserEntity entity, UserRequest request) {
-		entity.setName(request.getName());
-		entity.setPassword(request.getPassword());
-		entity.setModified(LocalDateTime.now());
-		if (request.getRoles()!=null || !"".equals(request.getRoles())) {
-			entity.setRoles(request.getRoles().toUpperCase());
-		}
-		
-		if (request.getActive()!=null) {
-			entity.setActive(request.getActive());
-		}
-
-		
-		List<PhoneEntity> phones = request.getPhones().stream()
-				.map(p -> new PhoneEntity(null, p.getNumber(), p.getCitycode(), p.getContrycode(), entity))
-				.toList();
-		
-		entity.getPhones().clear();
-		entity.getPhones().addAll(phones);
-	}
 }
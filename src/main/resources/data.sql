@@ -1,10 +1,12 @@
 -- las password se crearon con la clase: cl.bci.common.helper.CreateEncryptedPassword.java
+-- son BCrypt sin prefijo de algoritmo: se verifican como {bcrypt} y se recalculan con el algoritmo configurado en el primer login
+-- los id son BINARY(16): X'1111...' equivale al UUID 11111111-1111-1111-1111-111111111111
 -- Usuario con rol ADMIN
 -- password: Admin123  --->  $2a$10$wsBmAjqtSTYEmaObHOmb8OSrX0YEldBNThpc/EJYyawSclzyuJdfy
 INSERT INTO users (
     id, name, email, password, created, modified, last_login, token, is_active, roles
 ) VALUES (
-    '11111111-1111-1111-1111-111111111111',
+    X'11111111111111111111111111111111',
     'Administrador',
     'admin@example.com',
     '$2a$10$wsBmAjqtSTYEmaObHOmb8OSrX0YEldBNThpc/EJYyawSclzyuJdfy',
@@ -21,7 +23,7 @@ INSERT INTO users (
 INSERT INTO users (
     id, name, email, password, created, modified, last_login, token, is_active, roles
 ) VALUES (
-    '22222222-2222-2222-2222-222222222222',
+    X'22222222222222222222222222222222',
     'Usuario',
     'user@example.com',
     '$2a$10$lyhApG7xdG8QBEi5AgTY5e4kKh7zA0/2GLGuAT3Ymsyn3p.rvQJmG',
@@ -1,25 +1,90 @@
+DROP TABLE IF EXISTS refresh_token;
+DROP TABLE IF EXISTS user_directory;
 DROP TABLE IF EXISTS phone;
 DROP TABLE IF EXISTS users;
+DROP SEQUENCE IF EXISTS phone_seq;
 
 CREATE TABLE users (
-    id VARCHAR(36) PRIMARY KEY,
+    id BINARY(16) PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
-    email VARCHAR(255) NOT NULL UNIQUE,
+    email VARCHAR(255) NOT NULL,
     password VARCHAR(255) NOT NULL,
     created TIMESTAMP NOT NULL,
     modified TIMESTAMP NOT NULL,
     last_login TIMESTAMP NOT NULL,
     token VARCHAR(1000),
     is_active BOOLEAN NOT NULL,
-    roles VARCHAR(100) NOT NULL
+    -- un solo rol (ADMIN o USER): el filtro role de GET /users es por igualdad
+    roles VARCHAR(100) NOT NULL,
+    -- control de concurrencia optimista (@Version), se expone como ETag
+    version BIGINT DEFAULT 0 NOT NULL,
+    -- busqueda por prefijo (GET /users/search): la BD mantiene las copias en minusculas y sin espacios
+    -- en los extremos, igual que UserSearchCursor.normalize
+    name_lc VARCHAR(255) GENERATED ALWAYS AS (LOWER(TRIM(name))),
+    email_lc VARCHAR(255) GENERATED ALWAYS AS (LOWER(TRIM(email))),
+    -- el registro depende de este nombre para traducir el duplicado a 409 (UserService)
+    CONSTRAINT uk_users_email UNIQUE (email)
 );
 
+-- Soporta la paginacion por keyset de GET /users
+CREATE INDEX idx_users_created_id ON users(created, id);
+
+-- Filtros de GET /users: igualdad en is_active y roles, y el rango de created junto al keyset en el mismo indice
+CREATE INDEX idx_users_active_roles_created ON users(is_active, roles, created, id);
+CREATE INDEX idx_users_roles_created ON users(roles, created, id);
+-- Rango de modified (cambios recientes), se combina con los demas filtros sobre las filas que devuelve
+CREATE INDEX idx_users_modified ON users(modified);
+
+-- Soportan la busqueda por prefijo: rango sobre la clave en minusculas y keyset por (clave, id)
+CREATE INDEX idx_users_name_lc ON users(name_lc, id);
+CREATE INDEX idx_users_email_lc ON users(email_lc, id);
+
+
+-- INCREMENT BY debe coincidir con allocationSize de PhoneEntity (optimizador pooled de Hibernate)
+CREATE SEQUENCE phone_seq START WITH 1 INCREMENT BY 50;
 
 CREATE TABLE phone (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id BIGINT DEFAULT NEXT VALUE FOR phone_seq PRIMARY KEY,
     number VARCHAR(50) NOT NULL,
     citycode VARCHAR(10) NOT NULL,
     countrycode VARCHAR(10) NOT NULL,
-    user_id VARCHAR(36) NOT NULL,
+    user_id BINARY(16) NOT NULL,
+    -- busqueda inversa (GET /users/by-phone): solo los digitos, "+56" y "56" son el mismo pais
+    countrycode_digits VARCHAR(10) GENERATED ALWAYS AS (REGEXP_REPLACE(countrycode, '[^0-9]', '')),
+    citycode_digits VARCHAR(10) GENERATED ALWAYS AS (REGEXP_REPLACE(citycode, '[^0-9]', '')),
+    number_digits VARCHAR(50) GENERATED ALWAYS AS (REGEXP_REPLACE(number, '[^0-9]', '')),
     CONSTRAINT fk_user FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+-- Fonos de un usuario (lecturas por IN y el ON DELETE CASCADE) sin recorrer la tabla
+CREATE INDEX idx_phone_user_id ON phone(user_id);
+
+-- Usuario dueño de un fono; con user_id al final la consulta se resuelve solo con el indice
+CREATE INDEX idx_phone_lookup ON phone(countrycode_digits, citycode_digits, number_digits, user_id);
+
+-- Directorio correo -> shard del adaptador sharded (app.persistence.adapter=sharded), vive en la BD principal.
+-- uk_user_directory_email esta en la lista de PersistenceErrors, el duplicado se traduce igual a 409.
+CREATE TABLE user_directory (
+    user_id BINARY(16) PRIMARY KEY,
+    email VARCHAR(255) NOT NULL,
+    shard INT NOT NULL,
+    CONSTRAINT uk_user_directory_email UNIQUE (email)
+);
+
+-- Refresh tokens (POST /auth/refresh): solo el SHA-256 del token, nunca el token en claro.
+-- Sin FK a users: con el adaptador sharded o memory los usuarios no viven en esta BD.
+CREATE TABLE refresh_token (
+    token_hash BINARY(32) PRIMARY KEY,
+    family_id BINARY(16) NOT NULL,
+    user_id BINARY(16) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    roles VARCHAR(100) NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    -- ya rotado: volver a presentarlo es un reuso y revoca la familia
+    used BOOLEAN DEFAULT FALSE NOT NULL
+);
+
+-- Revocacion por reuso (familia) y por cambios del usuario, y la purga por bloques de los vencidos
+CREATE INDEX idx_refresh_token_family ON refresh_token(family_id);
+CREATE INDEX idx_refresh_token_user ON refresh_token(user_id);
+CREATE INDEX idx_refresh_token_expires ON refresh_token(expires_at);
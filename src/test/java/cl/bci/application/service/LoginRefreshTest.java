@@ -0,0 +1,121 @@
+package cl.bci.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import cl.bci.common.exception.InvalidJwtAuthenticationException;
+import cl.bci.common.security.OpaqueTokens;
+import cl.bci.user.application.port.RefreshTokenRepositoryPort;
+import cl.bci.user.application.service.LoginService;
+import cl.bci.user.application.service.UserService;
+import cl.bci.user.domain.AuthTokens;
+import cl.bci.user.domain.RefreshToken;
+import cl.bci.user.domain.User;
+import cl.bci.user.infrastructure.persistence.RefreshTokenPurger;
+import cl.bci.user.infrastructure.rest.dto.PhoneRequest;
+import cl.bci.user.infrastructure.rest.dto.UserPatchRequest;
+import cl.bci.user.infrastructure.rest.dto.UserRequest;
+import cl.bci.user.infrastructure.rest.dto.UserResponse;
+import jakarta.transaction.Transactional;
+
+/**
+ * Rotacion de refresh tokens: cada uso entrega uno nuevo, reusar uno rotado revoca la familia
+ * y los cambios de acceso del usuario revocan todos los suyos.
+ */
+@SpringBootTest
+@Transactional
+public class LoginRefreshTest {
+	@Autowired
+	private UserService userService;
+	
+	@Autowired
+	private LoginService loginService;
+	
+	@Autowired
+	private RefreshTokenRepositoryPort refreshTokens;
+	
+	@Autowired
+	private RefreshTokenPurger purger;
+	
+	@Test
+	void refresh_rotaYUnReusoRevocaLaFamilia() {
+		String email = createUser().email();
+		AuthTokens first = loginService.login(credentials(email)).orElseThrow();
+		
+		AuthTokens second = loginService.refresh(first.refreshToken());
+		assertEquals(email, second.email());
+		assertNotEquals(first.refreshToken(), second.refreshToken());
+		AuthTokens third = loginService.refresh(second.refreshToken());
+		
+		// el primero ya se roto: quien lo presenta no es el dueño de la sesion
+		assertThrows(InvalidJwtAuthenticationException.class, () -> loginService.refresh(first.refreshToken()));
+		assertThrows(InvalidJwtAuthenticationException.class, () -> loginService.refresh(third.refreshToken()));
+	}
+	
+	@Test
+	void refresh_noExtiendeLaVigenciaDeLaFamilia() {
+		String email = createUser().email();
+		AuthTokens first = loginService.login(credentials(email)).orElseThrow();
+		LocalDateTime deadline = refreshTokens.find(OpaqueTokens.hash(first.refreshToken())).orElseThrow().expiresAt();
+		
+		AuthTokens second = loginService.refresh(first.refreshToken());
+		AuthTokens third = loginService.refresh(second.refreshToken());
+		
+		// cada rotacion hereda el vencimiento del login, no suma otro ttl
+		assertEquals(deadline, refreshTokens.find(OpaqueTokens.hash(second.refreshToken())).orElseThrow().expiresAt());
+		assertEquals(deadline, refreshTokens.find(OpaqueTokens.hash(third.refreshToken())).orElseThrow().expiresAt());
+	}
+	
+	@Test
+	void patch_deRolesRevocaLosRefreshTokens() {
+		UserResponse user = createUser();
+		AuthTokens tokens = loginService.login(credentials(user.email())).orElseThrow();
+		
+		userService.patch(user.id(), new UserPatchRequest(null, null, null, "ADMIN", null), null);
+		
+		assertThrows(InvalidJwtAuthenticationException.class, () -> loginService.refresh(tokens.refreshToken()));
+	}
+	
+	@Test
+	void purge_eliminaSoloLosVencidos() {
+		LocalDateTime now = LocalDateTime.now();
+		for (int i = 0; i < 3; i++) {
+			refreshTokens.insert(OpaqueTokens.hash("vencido-" + i),
+					new RefreshToken(UUID.randomUUID(), UUID.randomUUID(), "vencido@example.com", "USER", now.minusMinutes(1), false));
+		}
+		byte[] active = OpaqueTokens.hash(OpaqueTokens.generate());
+		refreshTokens.insert(active,
+				new RefreshToken(UUID.randomUUID(), UUID.randomUUID(), "vigente@example.com", "USER", now.plusDays(1), false));
+		
+		assertTrue(purger.purge() >= 3);
+		assertTrue(refreshTokens.find(OpaqueTokens.hash("vencido-0")).isEmpty());
+		assertTrue(refreshTokens.find(active).isPresent());
+	}
+	
+	// correo unico: con el adaptador sharded los usuarios no vuelven atras con el rollback de la prueba
+	private UserResponse createUser() {
+		UserRequest request = new UserRequest();
+		request.setEmail("refresh" + System.nanoTime() + "@example.com");
+		request.setName("Refresh");
+		request.setPassword("Password123");
+		request.setPhones(List.of(new PhoneRequest("1234567", "1", "56")));
+		return userService.createUser(request);
+	}
+	
+	private static User credentials(String email) {
+		User user = new User();
+		user.setEmail(email);
+		user.setPassword("Password123");
+		return user;
+	}
+}
@@ -0,0 +1,117 @@
+package cl.bci.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import cl.bci.common.exception.CredencialesInvalidasException;
+import cl.bci.common.security.JwtUtil;
+import cl.bci.common.security.PasswordUtil;
+import cl.bci.common.security.VerifiedPasswords;
+import cl.bci.user.application.port.RefreshTokenRepositoryPort;
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.application.service.LoginService;
+import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserCredentials;
+import cl.bci.user.infrastructure.persistence.RegisteredEmails;
+import cl.bci.user.infrastructure.persistence.UserCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+public class LoginServiceTest {
+	private static final String EMAIL = "servicio@example.com";
+	private static final String PASSWORD = "Password123";
+
+	@Mock
+	private UserRespositoryPort userRepo;
+
+	@Mock
+	private PasswordUtil passwordUtil;
+
+	@Mock
+	private JwtUtil jwtUtil;
+
+	@Mock
+	private RegisteredEmails registeredEmails;
+
+	@Mock
+	private RefreshTokenRepositoryPort refreshTokens;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	private LoginService loginService;
+
+	private final UUID id = UUID.randomUUID();
+
+	@BeforeEach
+	void setUp() {
+		// cache de credenciales deshabilitada: cada login lee el hash actual del repositorio
+		UserCache userCache = new UserCache(new SimpleMeterRegistry(), 0, Duration.ofSeconds(60), 0, Duration.ofSeconds(60));
+		VerifiedPasswords verifiedPasswords = new VerifiedPasswords(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+		loginService = new LoginService(userRepo, passwordUtil, verifiedPasswords, jwtUtil, userCache, registeredEmails,
+				refreshTokens, Duration.ofDays(7), transactionManager);
+		when(registeredEmails.mightExist(EMAIL)).thenReturn(true);
+		lenient().when(jwtUtil.generateToken(eq(EMAIL), anyList())).thenReturn("jwt");
+	}
+
+	private UserCredentials credentials(String hash) {
+		return new UserCredentials(id, EMAIL, hash, "USER", true);
+	}
+	
+	private UserCredentials inactive(String hash) {
+		return new UserCredentials(id, EMAIL, hash, "USER", false);
+	}
+
+	private static User login() {
+		User user = new User();
+		user.setEmail(EMAIL);
+		user.setPassword(PASSWORD);
+		return user;
+	}
+
+	@Test
+	void login_repetidoNoRecalculaBcrypt_hastaQueCambiaElHash() {
+		when(userRepo.findCredentialsByEmail(EMAIL)).thenReturn(
+				Optional.of(credentials("{bcrypt}hash-1")),
+				Optional.of(credentials("{bcrypt}hash-1")),
+				Optional.of(credentials("{bcrypt}hash-2")));
+		when(passwordUtil.matches(eq(PASSWORD), anyString())).thenReturn(true);
+
+		assertTrue(loginService.login(login()).isPresent());
+		assertTrue(loginService.login(login()).isPresent());
+		// el segundo login con la misma contraseña contra el mismo hash no vuelve a calcular BCrypt
+		verify(passwordUtil, times(1)).matches(PASSWORD, "{bcrypt}hash-1");
+
+		// la contraseña cambio: la verificacion recordada ya no aplica
+		assertTrue(loginService.login(login()).isPresent());
+		verify(passwordUtil, times(1)).matches(PASSWORD, "{bcrypt}hash-2");
+	}
+	
+	@Test
+	void login_usuarioInactivo_verificaLaContraseñaAntesDeRechazar() {
+		when(userRepo.findCredentialsByEmail(EMAIL)).thenReturn(Optional.of(inactive("{bcrypt}hash-1")));
+		when(passwordUtil.matches(PASSWORD, "{bcrypt}hash-1")).thenReturn(true);
+		
+		// misma respuesta y mismo costo que una contraseña incorrecta
+		assertThrows(CredencialesInvalidasException.class, () -> loginService.login(login()));
+		verify(passwordUtil).matches(PASSWORD, "{bcrypt}hash-1");
+	}
+}
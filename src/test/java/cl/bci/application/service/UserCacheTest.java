@@ -0,0 +1,120 @@
+package cl.bci.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import cl.bci.user.application.service.LoginService;
+import cl.bci.user.application.service.UserService;
+import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserCredentials;
+import cl.bci.user.infrastructure.persistence.UserCache;
+import cl.bci.user.infrastructure.rest.dto.PhoneRequest;
+import cl.bci.user.infrastructure.rest.dto.UserPatchRequest;
+import cl.bci.user.infrastructure.rest.dto.UserRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Con la cache habilitada las lecturas repetidas no van a la BD y cada escritura confirmada las invalida.
+ * Sin @Transactional: la invalidacion ocurre al hacer commit.
+ */
+@Tag("jpa")
+@SpringBootTest(properties = {
+		"app.cache.users.max-entries=100",
+		"app.cache.credentials.max-entries=100",
+		"spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class UserCacheTest {
+	@Autowired
+	private UserService userService;
+	
+	@Autowired
+	private LoginService loginService;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	private Statistics statistics;
+	private UUID id;
+	
+	@BeforeEach
+	void setUp() {
+		UserRequest request = new UserRequest();
+		request.setEmail("cache@example.com");
+		request.setName("Cache");
+		request.setPassword("Password123");
+		request.setPhones(List.of(new PhoneRequest("5550001", "2", "56")));
+		id = userService.createUser(request).id();
+		
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+	
+	@AfterEach
+	void tearDown() {
+		userService.delete(id, null);
+	}
+	
+	@Test
+	void findById_segundaLecturaDesdeCacheYPatchInvalida() {
+		userService.findById(id);
+		long afterFirstRead = statistics.getPrepareStatementCount();
+		
+		userService.findById(id);
+		assertEquals(afterFirstRead, statistics.getPrepareStatementCount());
+		
+		userService.patch(id, new UserPatchRequest("Cache Nuevo", null, null, null, null), null);
+		assertEquals("Cache Nuevo", userService.findById(id).value().name());
+	}
+	
+	@Test
+	void login_credencialesEnCacheYCambioDePasswordInvalida() {
+		loginService.login(user("Password123"));
+		long afterFirstLogin = statistics.getPrepareStatementCount();
+		
+		loginService.login(user("Password123"));
+		assertEquals(afterFirstLogin, statistics.getPrepareStatementCount());
+		
+		userService.patch(id, new UserPatchRequest(null, "Password456", null, null, null), null);
+		assertTrue(loginService.login(user("Password456")).isPresent());
+	}
+	
+	@Test
+	void evictAll_invalidaLasCredencialesPorIdSinConocerElCorreo() {
+		UserCache cache = new UserCache(new SimpleMeterRegistry(), 10, Duration.ofSeconds(60), 10, Duration.ofSeconds(60));
+		UserCredentials credentials = new UserCredentials(id, "cache@example.com", "hash", "USER", true);
+		AtomicInteger loads = new AtomicInteger();
+		
+		cache.getByEmail("cache@example.com", email -> {
+			loads.incrementAndGet();
+			return credentials;
+		});
+		cache.evictAll(List.of(UUID.randomUUID(), id));
+		cache.getByEmail("cache@example.com", email -> {
+			loads.incrementAndGet();
+			return credentials;
+		});
+		assertEquals(2, loads.get());
+	}
+	
+	private static User user(String password) {
+		User user = new User();
+		user.setEmail("cache@example.com");
+		user.setPassword(password);
+		return user;
+	}
+}
@@ -0,0 +1,202 @@
+package cl.bci.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cl.bci.common.exception.DatabaseException;
+import cl.bci.common.exception.EmailException;
+import cl.bci.common.security.JwtUtil;
+import cl.bci.common.security.PasswordUtil;
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.application.service.UserImportService;
+import cl.bci.user.domain.User;
+import cl.bci.user.infrastructure.persistence.RegisteredEmails;
+import cl.bci.user.infrastructure.persistence.mapper.UserMapper;
+import cl.bci.user.infrastructure.rest.dto.PhoneRequest;
+import cl.bci.user.infrastructure.rest.dto.UserImportResult;
+import cl.bci.user.infrastructure.rest.dto.UserImportResult.Status;
+import cl.bci.user.infrastructure.rest.dto.UserRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+@ExtendWith(MockitoExtension.class)
+public class UserImportServiceTest {
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Mock
+	private Validator validator;
+
+	@Mock
+	private PasswordUtil passwordUtil;
+
+	@Mock
+	private JwtUtil jwtUtil;
+
+	@Mock
+	private UserRespositoryPort userRepo;
+
+	@Mock
+	private PlatformTransactionManager transactionManager;
+
+	@Mock
+	private RegisteredEmails registeredEmails;
+
+	@Mock
+	private ConstraintViolation<UserRequest> violation;
+
+	@BeforeEach
+	void setUp() {
+		// los registros sin nombre son invalidos, el resto pasa la validacion
+		lenient().when(violation.getMessage()).thenReturn("El nombre no puede estar vacío");
+		lenient().when(validator.validate(any(UserRequest.class))).thenAnswer(inv -> {
+			UserRequest request = inv.getArgument(0);
+			return request.getName() == null || request.getName().isEmpty() ? Set.of(violation) : Set.of();
+		});
+		lenient().when(passwordUtil.encodeAll(anyList())).thenAnswer(inv -> {
+			List<String> raw = inv.getArgument(0);
+			return raw.stream().map(p -> "hash-" + p).toList();
+		});
+		lenient().when(jwtUtil.generateToken(anyString(), anyList())).thenReturn("token");
+	}
+
+	private UserImportService service(int chunkSize) {
+		return new UserImportService(objectMapper, validator, passwordUtil, jwtUtil, new UserMapper(), userRepo,
+				new TransactionTemplate(transactionManager), registeredEmails, chunkSize);
+	}
+
+	private String line(String name, String email) throws Exception {
+		return objectMapper.writeValueAsString(
+				new UserRequest(name, email, "Clave1234", true, List.of(new PhoneRequest("1234567", "1", "57")), null));
+	}
+
+	private List<List<UserImportResult>> importLines(int chunkSize, String... lines) throws Exception {
+		List<List<UserImportResult>> chunks = new ArrayList<>();
+		byte[] body = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+		service(chunkSize).importUsers(new ByteArrayInputStream(body), chunks::add);
+		return chunks;
+	}
+
+	private static List<Status> statuses(List<UserImportResult> results) {
+		return results.stream().map(UserImportResult::status).toList();
+	}
+
+	private static List<Integer> lines(List<UserImportResult> results) {
+		return results.stream().map(UserImportResult::line).toList();
+	}
+
+	@Test
+	void importUsers_mezclaValidosInvalidosYDuplicados() throws Exception {
+		when(registeredEmails.mightExist(anyString())).thenAnswer(inv -> "existe@mail.com".equals(inv.getArgument(0)));
+		when(userRepo.findExistingEmails(List.of("existe@mail.com"))).thenReturn(Set.of("existe@mail.com"));
+
+		List<List<UserImportResult>> chunks = importLines(500,
+				line("ana", "ana@mail.com"),
+				line("", "sin.nombre@mail.com"),
+				"",
+				line("existe", "existe@mail.com"),
+				line("ana otra vez", "ana@mail.com"),
+				line("luis", "luis@mail.com"));
+
+		assertEquals(1, chunks.size());
+		List<UserImportResult> results = chunks.get(0);
+		// los numeros son las lineas del archivo, la linea en blanco no es un registro
+		assertEquals(List.of(1, 2, 4, 5, 6), lines(results));
+		assertEquals(List.of(Status.CREATED, Status.INVALID, Status.DUPLICATED, Status.DUPLICATED, Status.CREATED), statuses(results));
+		assertEquals("Correo repetido en la importacion", results.get(3).mensaje());
+
+		verify(userRepo, times(1)).insertAll(anyList());
+		verify(registeredEmails).add("ana@mail.com");
+		verify(registeredEmails).add("luis@mail.com");
+	}
+
+	@Test
+	void importUsers_jsonMalFormadoCortaLaImportacion() throws Exception {
+		List<List<UserImportResult>> chunks = importLines(500,
+				line("ana", "ana@mail.com"),
+				"esto no es json",
+				line("luis", "luis@mail.com"));
+
+		List<UserImportResult> results = chunks.stream().flatMap(List::stream).toList();
+		assertEquals(List.of(1, 2), lines(results));
+		assertEquals(List.of(Status.CREATED, Status.INVALID), statuses(results));
+		verify(passwordUtil).encodeAll(List.of("Clave1234"));
+	}
+
+	@Test
+	void importUsers_duplicadoConcurrenteSeReintentaUnoAUno() throws Exception {
+		doAnswer(inv -> {
+			List<User> users = inv.getArgument(0);
+			if (users.size() > 1) {
+				throw new EmailException("Uno de los correos ya está registrado");
+			}
+			String email = users.get(0).getEmail();
+			if (email.startsWith("dup")) {
+				throw new EmailException("El correo " + email + ", ya está registrado ");
+			}
+			if (email.startsWith("err")) {
+				throw new DatabaseException("No fue posible registrar el usuario", null);
+			}
+			return null;
+		}).when(userRepo).insertAll(anyList());
+
+		List<List<UserImportResult>> chunks = importLines(500,
+				line("ana", "ana@mail.com"),
+				line("dup", "dup@mail.com"),
+				line("err", "err@mail.com"));
+
+		List<UserImportResult> results = chunks.get(0);
+		assertEquals(List.of(1, 2, 3), lines(results));
+		// el error que no es de correo queda en su linea y la importacion sigue
+		assertEquals(List.of(Status.CREATED, Status.DUPLICATED, Status.ERROR), statuses(results));
+		verify(userRepo, times(4)).insertAll(anyList());
+	}
+
+	@Test
+	void importUsers_enviaLosResultadosPorBloque() throws Exception {
+		List<List<UserImportResult>> chunks = importLines(2,
+				line("ana", "ana@mail.com"),
+				line("", "x@mail.com"),
+				line("", "y@mail.com"),
+				line("", "z@mail.com"),
+				line("luis", "luis@mail.com"));
+
+		// los rechazados cuentan para el bloque y se envian con el, no al final
+		assertEquals(3, chunks.size());
+		assertEquals(List.of(1, 2), lines(chunks.get(0)));
+		assertEquals(List.of(Status.INVALID, Status.INVALID), statuses(chunks.get(1)));
+		assertEquals(List.of(5), lines(chunks.get(2)));
+		verify(userRepo, times(2)).insertAll(anyList());
+	}
+
+	@Test
+	void importUsers_sinRegistrosValidosNoInserta() throws Exception {
+		List<List<UserImportResult>> chunks = importLines(500, line("", "x@mail.com"));
+
+		assertEquals(List.of(Status.INVALID), statuses(chunks.get(0)));
+		verify(userRepo, never()).insertAll(anyList());
+	}
+}
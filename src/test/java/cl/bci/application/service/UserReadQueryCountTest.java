@@ -0,0 +1,146 @@
+package cl.bci.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import cl.bci.common.exception.UserNotFoundException;
+import cl.bci.user.application.service.LoginService;
+import cl.bci.user.application.service.UserService;
+import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.infrastructure.rest.dto.PhoneRequest;
+import cl.bci.user.infrastructure.rest.dto.UserPageResponse;
+import cl.bci.user.infrastructure.rest.dto.UserRequest;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+/**
+ * Las lecturas de usuarios deben costar un numero fijo de consultas por pagina,
+ * sin importar cuantos usuarios ni fonos traiga (sin N+1). El login lee solo las credenciales
+ * (mas un UPDATE la primera vez si el hash es de otro algoritmo) y un correo que nunca se registro no llega a la BD.
+ */
+@Tag("jpa")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+public class UserReadQueryCountTest {
+	@Autowired
+	private UserService userService;
+	
+	@Autowired
+	private LoginService loginService;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	private Statistics statistics;
+	
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < 6; i++) {
+			UserRequest request = new UserRequest();
+			request.setEmail("conteo" + i + "@example.com");
+			request.setName("Conteo " + i);
+			request.setPassword("Password123");
+			request.setPhones(List.of(new PhoneRequest("1000" + i, "1", "56"), new PhoneRequest("2000" + i, "2", "56")));
+			userService.createUser(request);
+		}
+		entityManager.flush();
+		entityManager.clear();
+		
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+	
+	@Test
+	void findPage_usaDosConsultasPorPagina() {
+		UserPageResponse first = userService.findPage(UserFilter.NONE, 4, null);
+		assertEquals(4, first.users().size());
+		assertNotNull(first.nextCursor());
+		assertEquals(2, statistics.getPrepareStatementCount());
+		
+		statistics.clear();
+		UserPageResponse second = userService.findPage(UserFilter.NONE, 4, first.nextCursor());
+		assertFalse(second.users().isEmpty());
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals(0, statistics.getEntityLoadCount());
+	}
+	
+	@Test
+	void findPage_conFiltrosUsaDosConsultasPorPagina() {
+		UserFilter filter = new UserFilter(true, "user", LocalDateTime.now().minusDays(1), null, null, null);
+		UserPageResponse first = userService.findPage(filter, 4, null);
+		assertEquals(4, first.users().size());
+		assertEquals(2, statistics.getPrepareStatementCount());
+		
+		statistics.clear();
+		UserPageResponse second = userService.findPage(filter, 4, first.nextCursor());
+		assertFalse(second.users().isEmpty());
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals(0, statistics.getEntityLoadCount());
+	}
+	
+	@Test
+	void findById_usaDosConsultas() {
+		UserPageResponse page = userService.findPage(UserFilter.NONE, 1, null);
+		statistics.clear();
+		
+		userService.findById(page.users().get(0).id());
+		assertEquals(2, statistics.getPrepareStatementCount());
+	}
+	
+	@Test
+	void login_unaConsultaSinEntidadesNiFonos() {
+		User user = new User();
+		user.setEmail("conteo0@example.com");
+		user.setPassword("Password123");
+		
+		assertTrue(loginService.login(user).isPresent());
+		assertEquals(1, statistics.getPrepareStatementCount());
+		assertEquals(0, statistics.getEntityLoadCount());
+		assertEquals(0, statistics.getCollectionFetchCount());
+	}
+	
+	@Test
+	void login_hashAntiguoSeActualizaUnaSolaVez() {
+		// admin de data.sql: BCrypt sin prefijo de algoritmo
+		User user = new User();
+		user.setEmail("admin@example.com");
+		user.setPassword("Admin123");
+		
+		assertTrue(loginService.login(user).isPresent());
+		assertEquals(2, statistics.getPrepareStatementCount());
+		
+		statistics.clear();
+		assertTrue(loginService.login(user).isPresent());
+		assertEquals(1, statistics.getPrepareStatementCount());
+	}
+	
+	@Test
+	void login_correoNuncaRegistradoNoConsultaLaBd() {
+		User user = new User();
+		user.setEmail("nunca-registrado@example.com");
+		user.setPassword("Password123");
+		
+		assertThrows(UserNotFoundException.class, () -> loginService.login(user));
+		assertEquals(0, statistics.getPrepareStatementCount());
+	}
+}
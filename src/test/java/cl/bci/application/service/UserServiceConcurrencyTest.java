@@ -0,0 +1,83 @@
+package cl.bci.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import cl.bci.common.exception.EmailException;
+import cl.bci.user.application.service.UserService;
+import cl.bci.user.infrastructure.persistence.UserJpaRepository;
+import cl.bci.user.infrastructure.rest.dto.PhoneRequest;
+import cl.bci.user.infrastructure.rest.dto.UserRequest;
+
+/**
+ * Varios registros simultaneos con el mismo correo: la restriccion unica debe dejar un solo ganador
+ * y el resto debe recibir EmailException (409).
+ */
+@SpringBootTest(properties = "app.password.hash-queue-capacity=64")
+public class UserServiceConcurrencyTest {
+	private static final String EMAIL = "concurrente@example.com";
+	private static final int THREADS = 8;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserJpaRepository userRepo;
+
+	@AfterEach
+	void cleanUp() {
+		userRepo.findByEmail(EMAIL).ifPresent(userRepo::delete);
+	}
+
+	@Test
+	void createUser_mismoCorreoEnParalelo_unSoloGanador() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		AtomicInteger created = new AtomicInteger();
+		AtomicInteger duplicated = new AtomicInteger();
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int i = 0; i < THREADS; i++) {
+			final int n = i;
+			futures.add(pool.submit(() -> {
+				UserRequest request = new UserRequest();
+				request.setEmail(EMAIL);
+				request.setName("Concurrente " + n);
+				request.setPassword("Password123");
+				request.setPhones(List.of(new PhoneRequest("5550" + n, "1", "56")));
+				start.await();
+				try {
+					userService.createUser(request);
+					created.incrementAndGet();
+				} catch (EmailException e) {
+					duplicated.incrementAndGet();
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> f : futures) {
+			f.get(60, TimeUnit.SECONDS);
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+		assertEquals(1, created.get());
+		assertEquals(THREADS - 1, duplicated.get());
+	}
+}
@@ -1,15 +1,22 @@
 package cl.bci.application.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,27 +25,41 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import cl.bci.common.dto.Versioned;
 import cl.bci.common.exception.EmailException;
+import cl.bci.common.exception.PreconditionFailedException;
 import cl.bci.common.exception.UserException;
+import cl.bci.common.exception.UserNotFoundException;
 import cl.bci.common.security.JwtUtil;
 import cl.bci.common.security.PasswordUtil;
+import cl.bci.user.application.port.RefreshTokenRepositoryPort;
+import cl.bci.user.application.port.UserRespositoryPort;
 import cl.bci.user.application.service.UserService;
-import cl.bci.user.infrastructure.persistence.UserJpaRepository;
-import cl.bci.user.infrastructure.persistence.entity.UserEntity;
+import cl.bci.user.domain.Phone;
+import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserChanges;
+import cl.bci.user.infrastructure.persistence.RegisteredEmails;
+import cl.bci.user.infrastructure.persistence.UserCache;
 import cl.bci.user.infrastructure.persistence.mapper.UserMapper;
 import cl.bci.user.infrastructure.rest.dto.PhoneResponse;
+import cl.bci.user.infrastructure.rest.dto.UserDeleteResponse;
+import cl.bci.user.infrastructure.rest.dto.UserPatchRequest;
 import cl.bci.user.infrastructure.rest.dto.UserRequest;
 import cl.bci.user.infrastructure.rest.dto.UserResponse;
 import cl.bci.user.infrastructure.rest.mapper.UserDtoMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.validation.Validator;
 
 @ExtendWith(MockitoExtension.class)
 public class UserServiceTest {
 	@Mock
-	private UserJpaRepository userRepo;
+	private UserRespositoryPort userRepo;
 
 	@Mock
 	private JwtUtil jwtUtil;
@@ -57,6 +78,22 @@ public class UserServiceTest {
 	
 	@Mock
     private PasswordUtil passwordUtil;
+	
+	@Mock
+	private Validator validator;
+	
+	@Mock
+	private PlatformTransactionManager transactionManager;
+	
+	@Mock
+	private RegisteredEmails registeredEmails;
+	
+	@Mock
+	private RefreshTokenRepositoryPort refreshTokens;
+	
+	// cache deshabilitada: todas las lecturas llegan a los mocks del repositorio
+	@Spy
+	private UserCache userCache = new UserCache(new SimpleMeterRegistry(), 0, Duration.ofSeconds(60), 0, Duration.ofSeconds(60));
 
 	private final UUID fakeId = UUID.randomUUID();
 	private final String email = "juan@gmail.com";
@@ -64,7 +101,7 @@ public class UserServiceTest {
 	@Test
 	void createUser_MailNOExiste() {
 		UserRequest request = new UserRequest("juan", email, "1Aooo2344555", true, List.of(), "Admin");
-		UserEntity userEntity = new UserEntity();
+		User user = new User();
 		UserResponse response = new UserResponse(
 					UUID.randomUUID(),
 					"juan",
@@ -77,40 +114,48 @@ public class UserServiceTest {
 					List.of()
 				);
 		
-		when(userRepo.findByEmail(email)).thenReturn(Optional.empty());
-		
 		when(passwordUtil.encode(any(String.class))).thenReturn("hashed-password-fake");
 		when(jwtUtil.generateToken(any(), anyList())).thenReturn("token-falso");
-		when(userMapper.toEntity(any(), any(), any(), any())).thenReturn(userEntity);
+		when(userMapper.toDomain(any(), any(), any(), any())).thenReturn(user);
 		
-		when(userRepo.save(userEntity)).thenReturn(userEntity);
-		when(userDtoMapper.toResponseSucces(userEntity)).thenReturn(response);
+		when(userRepo.insert(user)).thenReturn(user);
+		when(userDtoMapper.toResponseSucces(user)).thenReturn(response);
 		
 		UserResponse result = userService.createUser(request);
 		assertEquals(response, result);
-		verify(userRepo).save(userEntity);
+		verify(userRepo).insert(user);
+		verify(registeredEmails).add(user.getEmail());
+		verify(userRepo, never()).existsByEmail(any());
 	}
 
 
 	@Test
     void createUser_EmailSIExiste() {
 		UserRequest request = new UserRequest("juan", email, "1Aooo2344555", true, List.of(), "Admin");
+		User user = new User();
+		
+		when(passwordUtil.encode(any(String.class))).thenReturn("hashed-password-fake");
+		when(jwtUtil.generateToken(any(), anyList())).thenReturn("token-falso");
+		when(userMapper.toDomain(any(), any(), any(), any())).thenReturn(user);
+		// el adaptador traduce el rechazo de la restriccion unica del correo
+		when(userRepo.insert(user)).thenThrow(new EmailException("El correo " + email + ", ya está registrado "));
 		
-		when(userRepo.findByEmail(email)).thenReturn(Optional.of(new UserEntity()));
 		EmailException ex = assertThrows(EmailException.class, () -> {
 			userService.createUser(request);
 		});
 		
 		assertTrue(ex.getMessage().contains("ya está registrado"));
-		verify(userRepo, never()).save(any());
+		verify(userRepo, never()).existsByEmail(any());
     }
 	
 	@Test
     void findById_deberiaRetornarUsuario() {
-		UserEntity user = new UserEntity();
+		User user = new User(fakeId, "juan", email, null, List.of(new Phone(1L, "1234567", "1", "57")),
+				LocalDateTime.now(), LocalDateTime.now(), LocalDateTime.now(), "", true, "USER");
+		user.setVersion(2);
 		List<PhoneResponse> listPhone = List.of(new PhoneResponse("1234567", "1", "57"));
 		UserResponse response = new UserResponse(
-				UUID.randomUUID(),
+				fakeId,
 				"juan",
 				email,
 				LocalDateTime.now(),
@@ -124,8 +169,9 @@ public class UserServiceTest {
 		when(userRepo.findById(fakeId)).thenReturn(Optional.of(user));
 		when(userDtoMapper.toResponse(user)).thenReturn(response);
 		
-		UserResponse result = userService.findById(fakeId);
-		assertEquals(response, result);
+		Versioned<UserResponse> result = userService.findById(fakeId);
+		assertEquals(response, result.value());
+		assertEquals(2, result.version());
 	}
 	
 	@Test
@@ -134,4 +180,88 @@ public class UserServiceTest {
 		assertThrows(UserException.class, () -> userService.findById(fakeId));
 	}
 	
+	@Test
+	void patch_deberiaLanzarExcepcionSiNoExiste() {
+		when(userRepo.update(eq(fakeId), isNull(), any(UserChanges.class))).thenReturn(0);
+		
+		assertThrows(UserNotFoundException.class,
+				() -> userService.patch(fakeId, new UserPatchRequest("juan", null, null, null, null), null));
+		verify(userRepo, never()).findById(any());
+		verify(userRepo, never()).mergePhones(any(), anyList());
+	}
+	
+	@Test
+	void patch_sinCamposNoActualiza() {
+		assertThrows(UserException.class,
+				() -> userService.patch(fakeId, new UserPatchRequest(null, null, null, null, null), null));
+		verify(userRepo, never()).update(any(), any(), any());
+	}
+	
+	@Test
+	void patch_conVariosRolesNoActualiza() {
+		// un solo rol por usuario: el filtro role de GET /users compara por igualdad
+		assertThrows(UserException.class,
+				() -> userService.patch(fakeId, new UserPatchRequest(null, null, null, "ADMIN,USER", null), null));
+		verify(userRepo, never()).update(any(), any(), any());
+	}
+	
+	@Test
+	void patch_versionDesactualizadaLanza412() {
+		when(userRepo.update(eq(fakeId), eq(4L), any(UserChanges.class))).thenReturn(0);
+		when(userRepo.findVersion(fakeId)).thenReturn(Optional.of(5L));
+		
+		assertThrows(PreconditionFailedException.class,
+				() -> userService.patch(fakeId, new UserPatchRequest("juan", null, null, null, null), 4L));
+	}
+	
+	@Test
+	void delete_condicionalUnaSolaSentencia() {
+		when(userRepo.delete(fakeId, 4L)).thenReturn(1);
+		
+		userService.delete(fakeId, 4L);
+		
+		verify(userRepo, never()).findById(any());
+		verify(userRepo, never()).findVersion(any());
+	}
+	
+	@Test
+	void delete_deberiaLanzarExcepcionSiNoExiste() {
+		when(userRepo.delete(fakeId, null)).thenReturn(0);
+		
+		assertThrows(UserNotFoundException.class, () -> userService.delete(fakeId, null));
+		verify(userRepo, never()).findById(any());
+	}
+	
+	@Test
+	void emailExists_descartadoPorElFiltroNoConsultaLaBd() {
+		when(registeredEmails.mightExist(email)).thenReturn(false);
+		
+		assertFalse(userService.emailExists(email));
+		verify(userRepo, never()).existsByEmail(any());
+	}
+	
+	@Test
+	void deleteAll_unaSentenciaPorBloque() {
+		List<UUID> ids = new ArrayList<>();
+		for (int i = 0; i < UserService.DELETE_CHUNK * 2 + 10; i++) {
+			ids.add(UUID.randomUUID());
+		}
+		ids.add(ids.get(0));
+		when(userRepo.deleteAll(anyList())).thenReturn(UserService.DELETE_CHUNK, UserService.DELETE_CHUNK, 7);
+		
+		UserDeleteResponse result = userService.deleteAll(ids);
+		
+		verify(userRepo, times(3)).deleteAll(anyList());
+		assertEquals(UserService.DELETE_CHUNK * 2 + 10, result.requested());
+		assertEquals(UserService.DELETE_CHUNK * 2 + 7, result.deleted());
+	}
+	
+	@Test
+	void search_cursorInvalidoNoRepiteElTextoRecibido() {
+		UserException e = assertThrows(UserException.class, () -> userService.search("ana", 10, "<script>alert(1)</script>"));
+		
+		assertEquals("Cursor inválido", e.getMessage());
+		verify(userRepo, never()).search(any(), any(), anyInt());
+	}
+	
 }
@@ -0,0 +1,128 @@
+package cl.bci.application.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import cl.bci.common.dto.Versioned;
+import cl.bci.common.helper.UuidV7;
+import cl.bci.user.application.service.UserService;
+import cl.bci.user.infrastructure.rest.dto.PhoneRequest;
+import cl.bci.user.infrastructure.rest.dto.UserPatchRequest;
+import cl.bci.user.infrastructure.rest.dto.UserRequest;
+import cl.bci.user.infrastructure.rest.dto.UserResponse;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+/**
+ * Con ids de secuencia y JDBC batch, crear un usuario cuesta lo mismo con 1 o con N fonos.
+ * Las actualizaciones solo escriben lo que cambia.
+ */
+@Tag("jpa")
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+public class UserWriteStatementCountTest {
+	@Autowired
+	private UserService userService;
+	
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	@Test
+	void createUser_sentenciasConstantesSegunCantidadDeFonos() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		
+		// reserva el primer bloque de la secuencia para que no se cuente en las mediciones
+		userService.createUser(request("sentencias0@example.com", 1));
+		
+		statistics.clear();
+		userService.createUser(request("sentencias1@example.com", 1));
+		long withOnePhone = statistics.getPrepareStatementCount();
+		
+		statistics.clear();
+		userService.createUser(request("sentencias2@example.com", 8));
+		long withEightPhones = statistics.getPrepareStatementCount();
+		
+		assertEquals(2, withOnePhone);
+		assertEquals(withOnePhone, withEightPhones);
+	}
+	
+	@Test
+	void update_soloEscribeLosFonosQueCambian() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		UserRequest request = request("diferencia@example.com", 8);
+		UUID id = userService.createUser(request).id();
+		
+		// se mantienen 7 de los 8 fonos y se agrega uno nuevo
+		List<PhoneRequest> phones = new ArrayList<>(request("diferencia@example.com", 7).getPhones());
+		phones.add(new PhoneRequest("80000", "2", "56"));
+		UserRequest update = request("diferencia@example.com", 0);
+		update.setPhones(phones);
+		
+		statistics.clear();
+		userService.update(id, update, null);
+		entityManager.flush();
+		
+		assertEquals(1, statistics.getEntityDeleteCount());
+		assertEquals(1, statistics.getEntityInsertCount());
+	}
+	
+	@Test
+	void patch_unSoloUpdateSinLeerLaEntidad() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		UUID id = userService.createUser(request("parcial@example.com", 3)).id();
+		
+		statistics.clear();
+		Versioned<UserResponse> response = userService.patch(id, new UserPatchRequest("Nuevo Nombre", null, null, null, null), null);
+		
+		// UPDATE de las columnas enviadas + lectura de la respuesta (usuario y fonos por proyeccion)
+		assertEquals(3, statistics.getPrepareStatementCount());
+		assertEquals(0, statistics.getEntityLoadCount());
+		assertEquals("Nuevo Nombre", response.value().name());
+		assertEquals(3, response.value().phoneReponse().size());
+		assertEquals(1, response.version());
+	}
+	
+	@Test
+	void delete_unSoloDeleteYLosFonosPorCascada() {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		UUID id = userService.createUser(request("borrado@example.com", 5)).id();
+		
+		statistics.clear();
+		userService.delete(id, null);
+		
+		assertEquals(1, statistics.getPrepareStatementCount());
+		Number phones = (Number) entityManager
+				.createNativeQuery("select count(*) from phone where user_id = ?1")
+				.setParameter(1, UuidV7.toBytes(id))
+				.getSingleResult();
+		assertEquals(0, phones.intValue());
+	}
+	
+	private static UserRequest request(String email, int phones) {
+		List<PhoneRequest> list = new ArrayList<>();
+		for (int i = 0; i < phones; i++) {
+			list.add(new PhoneRequest("7000" + i, "2", "56"));
+		}
+		UserRequest request = new UserRequest();
+		request.setEmail(email);
+		request.setName("Sentencias");
+		request.setPassword("Password123");
+		request.setPhones(list);
+		return request;
+	}
+}
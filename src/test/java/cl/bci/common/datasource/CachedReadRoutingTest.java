@@ -0,0 +1,77 @@
+package cl.bci.common.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import cl.bci.user.application.service.UserService;
+import cl.bci.user.infrastructure.rest.dto.PhoneRequest;
+import cl.bci.user.infrastructure.rest.dto.UserRequest;
+
+/**
+ * Con la cache de usuarios habilitada las cargas van al primario: una replica atrasada dejaria en cache
+ * el valor anterior (o su ausencia) hasta el TTL.
+ */
+@Tag("jpa")
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:cached-routing-primary;DB_CLOSE_DELAY=-1",
+		"app.datasource.replica.url=jdbc:h2:mem:cached-routing-replica;DB_CLOSE_DELAY=-1",
+		"app.datasource.replica.username=sa",
+		"app.cache.users.max-entries=100"
+})
+public class CachedReadRoutingTest {
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	@Qualifier("replicaDataSource")
+	private DataSource replica;
+
+	@BeforeEach
+	void initReplica() {
+		new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql")).execute(replica);
+	}
+
+	@AfterEach
+	void clearAuthentication() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void cargaDeCache_vaAlPrimario_aunqueQuienLeeNoHayaEscrito() {
+		authenticate("escritor@example.com");
+		UUID id = userService.createUser(request("cacheado@example.com")).id();
+
+		// la replica no tiene el registro: solo se encuentra si la carga fue al primario
+		authenticate("lector@example.com");
+		assertEquals("cacheado@example.com", userService.findById(id).value().email());
+	}
+
+	private static void authenticate(String user) {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+	}
+
+	private static UserRequest request(String email) {
+		UserRequest request = new UserRequest();
+		request.setEmail(email);
+		request.setName("Cacheado");
+		request.setPassword("Password123");
+		request.setPhones(List.of(new PhoneRequest("6000", "2", "56")));
+		return request;
+	}
+}
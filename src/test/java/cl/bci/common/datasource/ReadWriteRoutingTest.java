@@ -0,0 +1,96 @@
+package cl.bci.common.datasource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import cl.bci.common.exception.UserNotFoundException;
+import cl.bci.user.application.service.UserService;
+import cl.bci.user.infrastructure.rest.dto.PhoneRequest;
+import cl.bci.user.infrastructure.rest.dto.UserRequest;
+
+/**
+ * Dos H2 en memoria independientes: lo que se escribe en el primario no llega a la "replica",
+ * asi se puede ver a cual de las dos fue cada lectura.
+ */
+@Tag("jpa")
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+		"app.datasource.replica.url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+		"app.datasource.replica.username=sa",
+		"app.datasource.replica.read-your-writes=1s"
+})
+public class ReadWriteRoutingTest {
+	@Autowired
+	private UserService userService;
+	
+	@Autowired
+	@Qualifier("replicaDataSource")
+	private DataSource replica;
+	
+	@BeforeEach
+	void initReplica() {
+		new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql")).execute(replica);
+	}
+	
+	@AfterEach
+	void clearAuthentication() {
+		SecurityContextHolder.clearContext();
+	}
+	
+	@Test
+	void lecturaDeSoloLectura_vaALaReplica_salvoParaQuienAcabaDeEscribir() throws Exception {
+		authenticate("escritor@example.com");
+		UUID id = userService.createUser(request("enrutado@example.com")).id();
+		
+		// quien escribio lee del primario mientras dura la ventana
+		assertEquals("enrutado@example.com", userService.findById(id).value().email());
+		
+		// otro usuario lee de la replica, que no tiene el registro
+		authenticate("lector@example.com");
+		assertThrows(UserNotFoundException.class, () -> userService.findById(id));
+		
+		// vencida la ventana, el escritor tambien vuelve a la replica
+		authenticate("escritor@example.com");
+		Thread.sleep(1100);
+		assertThrows(UserNotFoundException.class, () -> userService.findById(id));
+	}
+	
+	@Test
+	void escrituras_siempreAlPrimario() {
+		authenticate("escritor2@example.com");
+		UUID id = userService.createUser(request("primario@example.com")).id();
+		
+		// el DELETE (transaccion de escritura) encuentra la fila que solo existe en el primario
+		userService.delete(id, null);
+	}
+	
+	private static void authenticate(String user) {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(user, null, List.of()));
+	}
+	
+	private static UserRequest request(String email) {
+		UserRequest request = new UserRequest();
+		request.setEmail(email);
+		request.setName("Enrutado");
+		request.setPassword("Password123");
+		request.setPhones(List.of(new PhoneRequest("6000", "2", "56")));
+		return request;
+	}
+}
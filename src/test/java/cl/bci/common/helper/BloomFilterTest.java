@@ -0,0 +1,43 @@
+package cl.bci.common.helper;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTest {
+
+	@Test
+	void mightContain_sinFalsosNegativos() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("usuario" + i + "@example.com");
+		}
+		
+		for (int i = 0; i < 10_000; i++) {
+			assertTrue(filter.mightContain("usuario" + i + "@example.com"));
+		}
+	}
+
+	@Test
+	void mightContain_falsosPositivosCercaDeLaTasaConfigurada() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.put("usuario" + i + "@example.com");
+		}
+		
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("desconocido" + i + "@example.com")) {
+				falsePositives++;
+			}
+		}
+		// 1% esperado, con margen
+		assertTrue(falsePositives < 2_000, "falsos positivos: " + falsePositives);
+	}
+
+	@Test
+	void mightContain_vacioNoContieneNada() {
+		assertFalse(new BloomFilter(100, 0.01).mightContain("admin@example.com"));
+	}
+}
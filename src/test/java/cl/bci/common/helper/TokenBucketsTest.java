@@ -0,0 +1,79 @@
+package cl.bci.common.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketsTest {
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	@Test
+	void tryAcquire_permiteLaCapacidadYLuegoIndicaLaEspera() {
+		TokenBuckets buckets = new TokenBuckets(3, Duration.ofSeconds(3), 100);
+		long now = 1_000 * SECOND;
+		
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, buckets.tryAcquire("a@example.com", now));
+		}
+		assertEquals(SECOND, buckets.tryAcquire("a@example.com", now));
+		// otra clave tiene su propio bucket
+		assertEquals(0, buckets.tryAcquire("b@example.com", now));
+		
+		// se repone una ficha por segundo
+		assertEquals(0, buckets.tryAcquire("a@example.com", now + SECOND));
+		assertTrue(buckets.tryAcquire("a@example.com", now + SECOND) > 0);
+	}
+
+	@Test
+	void tryAcquire_eliminaLosBucketsInactivosAlLlenarse() {
+		TokenBuckets buckets = new TokenBuckets(1, Duration.ofSeconds(1), 10);
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 10; i++) {
+			buckets.tryAcquire("ip-" + i, now);
+		}
+		assertEquals(10, buckets.size());
+		
+		// pasado el periodo todos estan llenos: se eliminan en vez de crecer
+		assertEquals(0, buckets.tryAcquire("nuevo", now + 2 * SECOND));
+		assertEquals(1, buckets.size());
+	}
+
+	@Test
+	void tryAcquire_conElMapaLlenoDeBucketsActivosRechazaLasClavesNuevas() {
+		TokenBuckets buckets = new TokenBuckets(2, Duration.ofSeconds(10), 3);
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 3; i++) {
+			buckets.tryAcquire("ip-" + i, now);
+		}
+		
+		// ningun bucket se repuso: la clave nueva espera y las existentes conservan su estado
+		assertTrue(buckets.tryAcquire("nuevo", now + SECOND) > 0);
+		assertEquals(3, buckets.size());
+		assertEquals(0, buckets.tryAcquire("ip-0", now + SECOND));
+		assertTrue(buckets.tryAcquire("ip-0", now + SECOND) > 0);
+	}
+
+	@Test
+	void release_devuelveLaFichaSinPasarDeLaCapacidad() {
+		TokenBuckets buckets = new TokenBuckets(2, Duration.ofSeconds(2), 100);
+		long now = 1_000 * SECOND;
+		
+		assertEquals(0, buckets.tryAcquire("a@example.com", now));
+		assertEquals(0, buckets.tryAcquire("a@example.com", now));
+		buckets.release("a@example.com");
+		assertEquals(0, buckets.tryAcquire("a@example.com", now));
+		assertTrue(buckets.tryAcquire("a@example.com", now) > 0);
+		
+		// devolver de mas no agrega fichas por sobre la capacidad
+		buckets.release("a@example.com");
+		buckets.release("a@example.com");
+		buckets.release("a@example.com");
+		assertEquals(0, buckets.tryAcquire("a@example.com", now));
+		assertEquals(0, buckets.tryAcquire("a@example.com", now));
+		assertTrue(buckets.tryAcquire("a@example.com", now) > 0);
+	}
+}
@@ -0,0 +1,91 @@
+package cl.bci.common.helper;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compara la clave anterior (UUID aleatorio como VARCHAR(36)) con la actual (UUID v7 como BINARY(16))
+ * en inserciones y busquedas por PK sobre H2. Se ejecuta con: ./gradlew benchmark
+ */
+@Tag("benchmark")
+class UuidKeyBenchmark {
+	private static final int ROWS = 200_000;
+	private static final int LOOKUPS = 50_000;
+	private static final int BATCH = 1_000;
+
+	@Test
+	void varcharRandomVsBinaryV7() throws SQLException {
+		try (Connection con = DriverManager.getConnection("jdbc:h2:mem:uuidbench;DB_CLOSE_DELAY=-1", "sa", "")) {
+			try (Statement st = con.createStatement()) {
+				st.execute("CREATE TABLE users_varchar (id VARCHAR(36) PRIMARY KEY, name VARCHAR(255))");
+				st.execute("CREATE TABLE users_binary (id BINARY(16) PRIMARY KEY, name VARCHAR(255))");
+			}
+			
+			List<UUID> randomIds = new ArrayList<>(ROWS);
+			List<UUID> v7Ids = new ArrayList<>(ROWS);
+			for (int i = 0; i < ROWS; i++) {
+				randomIds.add(UUID.randomUUID());
+				v7Ids.add(UuidV7.generate());
+			}
+			
+			long varcharInsert = insert(con, "INSERT INTO users_varchar VALUES (?, ?)", randomIds, false);
+			long binaryInsert = insert(con, "INSERT INTO users_binary VALUES (?, ?)", v7Ids, true);
+			long varcharLookup = lookup(con, "SELECT name FROM users_varchar WHERE id = ?", randomIds, false);
+			long binaryLookup = lookup(con, "SELECT name FROM users_binary WHERE id = ?", v7Ids, true);
+			
+			System.out.printf("insert %d filas  VARCHAR(36)/random: %d ms  BINARY(16)/v7: %d ms%n",
+					ROWS, varcharInsert / 1_000_000, binaryInsert / 1_000_000);
+			System.out.printf("lookup %d claves VARCHAR(36)/random: %d ms  BINARY(16)/v7: %d ms%n",
+					LOOKUPS, varcharLookup / 1_000_000, binaryLookup / 1_000_000);
+		}
+	}
+
+	private static long insert(Connection con, String sql, List<UUID> ids, boolean binary) throws SQLException {
+		long start = System.nanoTime();
+		try (PreparedStatement ps = con.prepareStatement(sql)) {
+			for (int i = 0; i < ids.size(); i++) {
+				bind(ps, ids.get(i), binary);
+				ps.setString(2, "usuario " + i);
+				ps.addBatch();
+				if ((i + 1) % BATCH == 0) {
+					ps.executeBatch();
+				}
+			}
+			ps.executeBatch();
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static long lookup(Connection con, String sql, List<UUID> ids, boolean binary) throws SQLException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		long start = System.nanoTime();
+		try (PreparedStatement ps = con.prepareStatement(sql)) {
+			for (int i = 0; i < LOOKUPS; i++) {
+				bind(ps, ids.get(random.nextInt(ids.size())), binary);
+				try (ResultSet rs = ps.executeQuery()) {
+					rs.next();
+				}
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static void bind(PreparedStatement ps, UUID id, boolean binary) throws SQLException {
+		if (binary) {
+			ps.setBytes(1, UuidV7.toBytes(id));
+		} else {
+			ps.setString(1, id.toString());
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package cl.bci.common.helper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+class UuidV7Test {
+
+	@Test
+	void generate_versionYVarianteCorrectas() {
+		UUID uuid = UuidV7.generate();
+		
+		assertEquals(7, uuid.version());
+		assertEquals(2, uuid.variant());
+	}
+
+	@Test
+	void generate_ordenadoPorTiempo() throws InterruptedException {
+		UUID first = UuidV7.generate();
+		Thread.sleep(2);
+		UUID second = UuidV7.generate();
+		
+		// el timestamp ocupa los bits mas significativos
+		assertTrue(Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits()) < 0);
+	}
+
+	@Test
+	void bytes_idaYVuelta() {
+		UUID uuid = UuidV7.generate();
+		
+		assertEquals(16, UuidV7.toBytes(uuid).length);
+		assertEquals(uuid, UuidV7.fromBytes(UuidV7.toBytes(uuid)));
+	}
+}
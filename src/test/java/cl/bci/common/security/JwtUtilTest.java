@@ -0,0 +1,48 @@
+package cl.bci.common.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class JwtUtilTest {
+	private SimpleMeterRegistry registry;
+	private JwtUtil jwtUtil;
+
+	@BeforeEach
+	void setUp() {
+		registry = new SimpleMeterRegistry();
+		jwtUtil = new JwtUtil(registry);
+		ReflectionTestUtils.setField(jwtUtil, "secret", "MiClaveSuperSecretaConAlMenos32Caracteres123456");
+		ReflectionTestUtils.setField(jwtUtil, "cacheMaxEntries", 100);
+		jwtUtil.init();
+	}
+
+	@Test
+	void verify_retornaPrincipalYCacheaElToken() {
+		String token = jwtUtil.generateToken("admin@example.com", List.of("ADMIN"));
+
+		JwtPrincipal first = jwtUtil.verify(token).orElseThrow();
+		JwtPrincipal second = jwtUtil.verify(token).orElseThrow();
+
+		assertEquals("admin@example.com", first.subject());
+		assertEquals(List.of("ADMIN"), first.roles());
+		assertEquals(first, second);
+		assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+		assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+	}
+
+	@Test
+	void verify_tokenAdulteradoNoEsValido() {
+		String token = jwtUtil.generateToken("admin@example.com", List.of("ADMIN"));
+
+		assertTrue(jwtUtil.verify(token + "x").isEmpty());
+		assertTrue(jwtUtil.verify(null).isEmpty());
+	}
+}
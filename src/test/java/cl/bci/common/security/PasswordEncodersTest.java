@@ -0,0 +1,63 @@
+package cl.bci.common.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+class PasswordEncodersTest {
+	// hash de data.sql, BCrypt sin prefijo de algoritmo
+	private static final String SEED_HASH = "$2a$10$wsBmAjqtSTYEmaObHOmb8OSrX0YEldBNThpc/EJYyawSclzyuJdfy";
+
+	@Test
+	void bcrypt_verificaHashesSinPrefijoYLosMarcaParaActualizar() {
+		PasswordEncoder encoder = PasswordEncoders.create(PasswordEncoders.BCRYPT, Duration.ZERO);
+		
+		assertTrue(encoder.matches("Admin123", SEED_HASH));
+		assertTrue(encoder.upgradeEncoding(SEED_HASH));
+		
+		String hash = encoder.encode("Admin123");
+		assertTrue(hash.startsWith("{bcrypt}"));
+		assertTrue(encoder.matches("Admin123", hash));
+		assertFalse(encoder.upgradeEncoding(hash));
+	}
+
+	@Test
+	void pbkdf2_verificaHashesBcryptYLosMarcaParaActualizar() {
+		PasswordEncoder bcrypt = PasswordEncoders.create(PasswordEncoders.BCRYPT, Duration.ZERO);
+		PasswordEncoder pbkdf2 = PasswordEncoders.create(PasswordEncoders.PBKDF2, Duration.ZERO);
+		String bcryptHash = bcrypt.encode("Password123");
+		
+		assertTrue(pbkdf2.matches("Password123", bcryptHash));
+		assertTrue(pbkdf2.upgradeEncoding(bcryptHash));
+		
+		String hash = pbkdf2.encode("Password123");
+		assertTrue(hash.startsWith("{pbkdf2}"));
+		assertTrue(pbkdf2.matches("Password123", hash));
+		assertFalse(pbkdf2.matches("Password124", hash));
+		assertFalse(pbkdf2.upgradeEncoding(hash));
+		// el configurado en bcrypt tambien verifica los pbkdf2 y pide volver a bcrypt
+		assertTrue(bcrypt.matches("Password123", hash));
+		assertTrue(bcrypt.upgradeEncoding(hash));
+	}
+
+	@Test
+	void pbkdf2_cadaHashSeVerificaConSusIteraciones() {
+		Pbkdf2IterationsPasswordEncoder before = new Pbkdf2IterationsPasswordEncoder(1_000);
+		Pbkdf2IterationsPasswordEncoder after = new Pbkdf2IterationsPasswordEncoder(2_000);
+		String hash = before.encode("Password123");
+		
+		assertTrue(after.matches("Password123", hash));
+		assertTrue(after.upgradeEncoding(hash));
+		assertFalse(before.upgradeEncoding(hash));
+	}
+
+	@Test
+	void create_algoritmoDesconocidoFallaAlIniciar() {
+		assertThrows(IllegalStateException.class, () -> PasswordEncoders.create("md5", Duration.ZERO));
+	}
+}
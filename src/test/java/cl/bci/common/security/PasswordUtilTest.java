@@ -0,0 +1,74 @@
+package cl.bci.common.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import cl.bci.common.exception.HashingUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PasswordUtilTest {
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final PasswordEncoder encoder = mock(PasswordEncoder.class);
+	private final CountDownLatch started = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private PasswordUtil passwordUtil;
+
+	@AfterEach
+	void shutdown() {
+		release.countDown();
+		passwordUtil.shutdown();
+	}
+
+	@Test
+	void poolSaturado_fallaDeInmediatoConHashingUnavailable() throws Exception {
+		// un hilo y sin cola: con una operacion en curso la siguiente no tiene donde esperar
+		passwordUtil = new PasswordUtil(encoder, registry, 1, 0);
+		when(encoder.encode("Lenta123")).thenAnswer(inv -> {
+			started.countDown();
+			release.await();
+			return "hash-lenta";
+		});
+
+		Future<String> running = passwordUtil.submitEncode("Lenta123");
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		assertEquals(1.0, registry.get("password.hash.active").gauge().value());
+		assertEquals(0.0, registry.get("password.hash.queue").gauge().value());
+
+		// no se bloquea esperando un hilo: responde 503 sin calcular el hash
+		assertThrows(HashingUnavailableException.class, () -> passwordUtil.matches("Otra123", "hash"));
+		verify(encoder, never()).matches("Otra123", "hash");
+
+		release.countDown();
+		assertEquals("hash-lenta", PasswordUtil.await(running));
+		// solo la operacion ejecutada queda en el timer, la rechazada no
+		assertEquals(1, registry.get("password.hash").tag("operation", "encode").timer().count());
+		assertEquals(0, registry.get("password.hash").tag("operation", "matches").timer().count());
+	}
+
+	@Test
+	void poolLibre_ejecutaYMideCadaOperacion() {
+		passwordUtil = new PasswordUtil(encoder, registry, 1, -1);
+		when(encoder.encode("Clave123")).thenReturn("hash-clave");
+		when(encoder.matches("Clave123", "hash-clave")).thenReturn(true);
+
+		assertEquals("hash-clave", passwordUtil.encode("Clave123"));
+		assertTrue(passwordUtil.matches("Clave123", "hash-clave"));
+
+		assertEquals(1, registry.get("password.hash").tag("operation", "encode").timer().count());
+		assertEquals(1, registry.get("password.hash").tag("operation", "matches").timer().count());
+	}
+}
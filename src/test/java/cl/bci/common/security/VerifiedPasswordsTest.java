@@ -0,0 +1,33 @@
+package cl.bci.common.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class VerifiedPasswordsTest {
+
+	@Test
+	void contains_soloLaMismaContraseñaContraElMismoHash() {
+		VerifiedPasswords verified = new VerifiedPasswords(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+		verified.remember("servicio@example.com", "Password123", "{bcrypt}hash-1");
+		
+		assertTrue(verified.contains("servicio@example.com", "Password123", "{bcrypt}hash-1"));
+		assertFalse(verified.contains("servicio@example.com", "Password124", "{bcrypt}hash-1"));
+		assertFalse(verified.contains("otro@example.com", "Password123", "{bcrypt}hash-1"));
+		// cambio de contraseña: el hash guardado es otro
+		assertFalse(verified.contains("servicio@example.com", "Password123", "{bcrypt}hash-2"));
+	}
+
+	@Test
+	void contains_deshabilitadaNoRecuerdaNada() {
+		VerifiedPasswords verified = new VerifiedPasswords(new SimpleMeterRegistry(), 0, Duration.ofMinutes(1));
+		verified.remember("servicio@example.com", "Password123", "{bcrypt}hash-1");
+		
+		assertFalse(verified.contains("servicio@example.com", "Password123", "{bcrypt}hash-1"));
+	}
+}
@@ -0,0 +1,59 @@
+package cl.bci.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import cl.bci.common.exception.EmailException;
+import cl.bci.common.helper.UuidV7;
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserChanges;
+import cl.bci.user.infrastructure.persistence.InMemoryUserRepositoryAdapter;
+
+public class InMemoryUserRepositoryAdapterTest extends UserRepositoryPortContractTest {
+	private final InMemoryUserRepositoryAdapter port = new InMemoryUserRepositoryAdapter();
+	
+	@Override
+	protected UserRespositoryPort port() {
+		return port;
+	}
+	
+	@Test
+	void escriturasConcurrentes_unCorreoUnGanadorYSinActualizacionesPerdidas() throws Exception {
+		LocalDateTime now = LocalDateTime.now();
+		AtomicInteger duplicated = new AtomicInteger();
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		
+		for (int i = 0; i < 8; i++) {
+			pool.submit(() -> {
+				try {
+					port.insert(new User(UuidV7.generate(), "Carga", "carga@example.com", "hash", List.of(), now, now, now, "t", true, "USER"));
+				} catch (EmailException e) {
+					duplicated.incrementAndGet();
+				}
+			});
+		}
+		pool.shutdown();
+		assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(7, duplicated.get());
+		
+		UUID winner = port.findCredentialsByEmail("carga@example.com").orElseThrow().id();
+		ExecutorService writers = Executors.newFixedThreadPool(8);
+		for (int i = 0; i < 1000; i++) {
+			writers.submit(() -> port.update(winner, null, new UserChanges(null, null, null, null, now)));
+		}
+		writers.shutdown();
+		assertTrue(writers.awaitTermination(10, TimeUnit.SECONDS));
+		assertEquals(1000, port.findVersion(winner).orElseThrow());
+	}
+}
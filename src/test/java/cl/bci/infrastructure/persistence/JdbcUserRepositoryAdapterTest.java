@@ -0,0 +1,28 @@
+package cl.bci.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.infrastructure.persistence.JdbcUserRepositoryAdapter;
+import jakarta.transaction.Transactional;
+
+@SpringBootTest(properties = "app.persistence.adapter=jdbc")
+@Transactional
+public class JdbcUserRepositoryAdapterTest extends UserRepositoryPortContractTest {
+	@Autowired
+	private UserRespositoryPort port;
+	
+	@Override
+	protected UserRespositoryPort port() {
+		return port;
+	}
+	
+	@Test
+	void adaptadorSeleccionadoPorPropiedad() {
+		assertInstanceOf(JdbcUserRepositoryAdapter.class, port);
+	}
+}
@@ -0,0 +1,31 @@
+package cl.bci.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.infrastructure.persistence.JpaUserRepositoryAdapter;
+import jakarta.transaction.Transactional;
+
+// adaptador por defecto, sin app.persistence.adapter
+@Tag("jpa")
+@SpringBootTest
+@Transactional
+public class JpaUserRepositoryAdapterTest extends UserRepositoryPortContractTest {
+	@Autowired
+	private UserRespositoryPort port;
+	
+	@Override
+	protected UserRespositoryPort port() {
+		return port;
+	}
+	
+	@Test
+	void adaptadorPorDefecto() {
+		assertInstanceOf(JpaUserRepositoryAdapter.class, port);
+	}
+}
@@ -0,0 +1,108 @@
+package cl.bci.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.simple.JdbcClient;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import cl.bci.common.helper.UuidV7;
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.domain.User;
+
+/**
+ * Tres H2 en memoria como shards. Sin @Transactional: las escrituras en los shards no participan
+ * de la transaccion de la prueba, cada prueba usa sus propios correos.
+ */
+@SpringBootTest(properties = {
+		"app.persistence.adapter=sharded",
+		"app.persistence.sharding.urls=" + ShardedUserRepositoryAdapterTest.SHARD0 + "," + ShardedUserRepositoryAdapterTest.SHARD1
+				+ "," + ShardedUserRepositoryAdapterTest.SHARD2,
+		"app.persistence.sharding.init-schema=true",
+		"app.persistence.sharding.seed-from-primary=true"
+})
+public class ShardedUserRepositoryAdapterTest extends UserRepositoryPortContractTest {
+	static final String SHARD0 = "jdbc:h2:mem:test-shard0;DB_CLOSE_DELAY=-1";
+	static final String SHARD1 = "jdbc:h2:mem:test-shard1;DB_CLOSE_DELAY=-1";
+	static final String SHARD2 = "jdbc:h2:mem:test-shard2;DB_CLOSE_DELAY=-1";
+	
+	@Autowired
+	private UserRespositoryPort port;
+	
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+	
+	@Override
+	protected UserRespositoryPort port() {
+		return port;
+	}
+	
+	@Test
+	void usuariosRepartidosEntreShards_yUsuariosPrecargadosDisponibles() {
+		LocalDateTime now = LocalDateTime.now();
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 30; i++) {
+			users.add(new User(UuidV7.generate(), "Shard", "shard" + i + "@example.com", "hash", new ArrayList<>(),
+					now, now, now, "t", true, "USER"));
+		}
+		port.insertAll(users);
+		
+		int total = 0;
+		for (String url : List.of(SHARD0, SHARD1, SHARD2)) {
+			int inShard = JdbcClient.create(new DriverManagerDataSource(url, "sa", ""))
+					.sql("SELECT COUNT(*) FROM users WHERE email LIKE 'shard%'")
+					.query(Integer.class)
+					.single();
+			assertTrue(inShard > 0, "shard sin usuarios: " + url);
+			total += inShard;
+		}
+		assertEquals(30, total);
+		users.forEach(u -> assertTrue(port.findById(u.getId()).isPresent()));
+		
+		// data.sql se copia desde la BD principal al iniciar
+		assertTrue(port.findCredentialsByEmail("admin@example.com").isPresent());
+	}
+	
+	@Test
+	void insertRevertido_borraElUsuarioDelShard() {
+		LocalDateTime now = LocalDateTime.now();
+		User user = new User(UuidV7.generate(), "Rollback", "rollback.insert@example.com", "hash", new ArrayList<>(),
+				now, now, now, "t", true, "USER");
+		
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			port.insert(user);
+			status.setRollbackOnly();
+		});
+		
+		// el shard ya habia confirmado: la compensacion lo borra al revertirse el directorio
+		assertFalse(port.existsByEmail(user.getEmail()));
+		assertTrue(port.findById(user.getId()).isEmpty());
+	}
+	
+	@Test
+	void deleteRevertido_igualLiberaElCorreo() {
+		LocalDateTime now = LocalDateTime.now();
+		User user = new User(UuidV7.generate(), "Rollback", "rollback.delete@example.com", "hash", new ArrayList<>(),
+				now, now, now, "t", true, "USER");
+		port.insert(user);
+		
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			assertEquals(1, port.delete(user.getId(), null));
+			status.setRollbackOnly();
+		});
+		
+		// el borrado en el shard es definitivo, el directorio no puede quedar apuntando a un usuario inexistente
+		assertTrue(port.findById(user.getId()).isEmpty());
+		assertFalse(port.existsByEmail(user.getEmail()));
+	}
+}
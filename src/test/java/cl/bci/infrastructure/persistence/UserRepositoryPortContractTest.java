@@ -0,0 +1,229 @@
+package cl.bci.infrastructure.persistence;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import cl.bci.common.exception.EmailException;
+import cl.bci.common.helper.UuidV7;
+import cl.bci.user.application.port.UserRespositoryPort;
+import cl.bci.user.domain.Phone;
+import cl.bci.user.domain.User;
+import cl.bci.user.domain.UserChanges;
+import cl.bci.user.domain.UserCredentials;
+import cl.bci.user.domain.UserCursor;
+import cl.bci.user.domain.UserFilter;
+import cl.bci.user.domain.UserSearchCursor;
+
+/**
+ * Comportamiento comun que deben cumplir todos los adaptadores del puerto (jpa, jdbc y memory).
+ * Los usuarios se crean con fecha en el futuro para quedar despues de los precargados por data.sql.
+ */
+abstract class UserRepositoryPortContractTest {
+	private static final LocalDateTime FUTURE = LocalDateTime.of(2100, 1, 1, 0, 0);
+	
+	protected abstract UserRespositoryPort port();
+	
+	@Test
+	void insert_yFindById_conFonosYVersionCero() {
+		User user = user("contrato@example.com", FUTURE, 2);
+		port().insert(user);
+		
+		User found = port().findById(user.getId()).orElseThrow();
+		assertEquals("contrato@example.com", found.getEmail());
+		assertEquals(0, found.getVersion());
+		assertEquals(List.of("9000|2|56", "9001|2|56"), found.getPhones().stream().map(Phone::naturalKey).toList());
+		assertTrue(port().findById(UUID.randomUUID()).isEmpty());
+	}
+	
+	@Test
+	void insert_correoRepetidoLanzaEmailException() {
+		port().insert(user("repetido@example.com", FUTURE, 1));
+		
+		assertThrows(EmailException.class, () -> port().insert(user("repetido@example.com", FUTURE, 1)));
+		assertThrows(EmailException.class, () -> port().insertAll(List.of(user("repetido@example.com", FUTURE, 0))));
+	}
+	
+	@Test
+	void credencialesYCorreosExistentes() {
+		User user = user("credenciales@example.com", FUTURE, 1);
+		port().insert(user);
+		
+		UserCredentials credentials = port().findCredentialsByEmail("credenciales@example.com").orElseThrow();
+		assertEquals(user.getId(), credentials.id());
+		assertEquals("hash", credentials.passwordHash());
+		assertTrue(credentials.active());
+		assertTrue(port().existsByEmail("credenciales@example.com"));
+		assertFalse(port().existsByEmail("otro@example.com"));
+		assertEquals(Set.of("credenciales@example.com"),
+				port().findExistingEmails(List.of("credenciales@example.com", "otro@example.com")));
+		
+		Set<String> all = new HashSet<>();
+		port().forEachEmail(all::add);
+		assertTrue(all.contains("credenciales@example.com"));
+	}
+	
+	@Test
+	void update_incrementaLaVersionYRespetaLaEsperada() {
+		User user = user("version@example.com", FUTURE, 1);
+		port().insert(user);
+		
+		assertEquals(1, port().update(user.getId(), 0L, changes("Nuevo")));
+		assertEquals(0, port().update(user.getId(), 0L, changes("Perdido")));
+		assertEquals(1, port().update(user.getId(), null, changes(null)));
+		assertEquals(0, port().update(UUID.randomUUID(), null, changes("Nadie")));
+		
+		User found = port().findById(user.getId()).orElseThrow();
+		assertEquals("Nuevo", found.getName());
+		assertEquals(2, found.getVersion());
+	}
+	
+	@Test
+	void mergePhones_eliminaLosQueNoVienenYAgregaLosNuevos() {
+		User user = user("fonos@example.com", FUTURE, 3);
+		port().insert(user);
+		
+		port().mergePhones(user.getId(), List.of(
+				new Phone(null, "9000", "2", "56"),
+				new Phone(null, "9002", "2", "56"),
+				new Phone(null, "7777", "2", "56")));
+		
+		Set<String> phones = Set.copyOf(port().findById(user.getId()).orElseThrow().getPhones().stream()
+				.map(Phone::naturalKey).toList());
+		assertEquals(Set.of("9000|2|56", "9002|2|56", "7777|2|56"), phones);
+	}
+	
+	@Test
+	void findPage_yForEachChunk_ordenPorCreatedEId() {
+		// un año despues que el resto, por si el adaptador no revierte lo de otras pruebas
+		LocalDateTime base = FUTURE.plusYears(1);
+		User first = user("pagina1@example.com", base.plusSeconds(1), 1);
+		User second = user("pagina2@example.com", base.plusSeconds(2), 1);
+		User third = user("pagina3@example.com", base.plusSeconds(3), 1);
+		port().insertAll(List.of(third, first, second));
+		
+		UserCursor start = new UserCursor(base, new UUID(0, 0));
+		List<User> page = port().findPage(start, 2);
+		assertEquals(List.of(first.getId(), second.getId()), page.stream().map(User::getId).toList());
+		assertEquals(1, page.get(0).getPhones().size());
+		
+		User last = page.get(1);
+		List<User> next = port().findPage(new UserCursor(last.getCreated(), last.getId()), 2);
+		assertEquals(List.of(third.getId()), next.stream().map(User::getId).toList());
+		
+		List<UUID> streamed = new ArrayList<>();
+		port().forEachChunk(2, chunk -> {
+			assertTrue(chunk.size() <= 2);
+			chunk.stream().filter(u -> u.getEmail().startsWith("pagina")).map(User::getId).forEach(streamed::add);
+		});
+		assertEquals(List.of(first.getId(), second.getId(), third.getId()), streamed);
+	}
+	
+	@Test
+	void findPage_conFiltrosYKeyset() {
+		// dos años despues que el resto, por si el adaptador no revierte lo de otras pruebas
+		LocalDateTime base = FUTURE.plusYears(2);
+		User admin = user("filtro-admin@example.com", base.plusSeconds(1), 0);
+		admin.setRoles("ADMIN");
+		User inactive = user("filtro-inactivo@example.com", base.plusSeconds(2), 0);
+		inactive.setActive(false);
+		User first = user("filtro1@example.com", base.plusSeconds(3), 1);
+		User second = user("filtro2@example.com", base.plusSeconds(4), 0);
+		User late = user("filtro-tarde@example.com", base.plusDays(8), 0);
+		port().insertAll(List.of(late, second, admin, inactive, first));
+		
+		UserFilter week = new UserFilter(true, "user", base, base.plusDays(7), null, null);
+		List<User> page = port().findPage(week, null, 1);
+		assertEquals(List.of(first.getId()), page.stream().map(User::getId).toList());
+		assertEquals(1, page.get(0).getPhones().size());
+		
+		List<User> next = port().findPage(week, new UserCursor(first.getCreated(), first.getId()), 5);
+		assertEquals(List.of(second.getId()), next.stream().map(User::getId).toList());
+		
+		UserFilter admins = new UserFilter(null, "ADMIN", base, null, base.minusDays(1), base.plusSeconds(2));
+		assertEquals(List.of(admin.getId()), port().findPage(admins, null, 5).stream().map(User::getId).toList());
+	}
+	
+	@Test
+	void search_porPrefijoDeNombreOCorreoSinDuplicados() {
+		// prefijo unico, por si el adaptador no revierte lo de otras pruebas
+		String prefix = "busq" + UUID.randomUUID().toString().substring(0, 8);
+		User byName = user("x" + prefix + "@example.com", FUTURE, 1);
+		// los espacios al inicio no cuentan, ni en la BD ni en la clave del cursor
+		byName.setName("  " + prefix.toUpperCase() + " Ana");
+		User byEmail = user(prefix + "correo@example.com", FUTURE, 0);
+		User both = user(prefix + "beto@example.com", FUTURE, 0);
+		both.setName(prefix + " Beto");
+		User none = user("nada" + prefix + "@example.com", FUTURE, 0);
+		port().insertAll(List.of(byEmail, none, both, byName));
+		
+		List<User> page = port().search(prefix, null, 2);
+		assertEquals(List.of(byName.getId(), both.getId()), page.stream().map(User::getId).toList());
+		assertEquals(1, page.get(0).getPhones().size());
+		
+		List<User> next = port().search(prefix, UserSearchCursor.of(page.get(1), prefix), 2);
+		assertEquals(List.of(byEmail.getId()), next.stream().map(User::getId).toList());
+		
+		// al cambiar el nombre sigue apareciendo, ahora por su correo
+		port().update(both.getId(), null, changes("Carlos"));
+		assertEquals(List.of(byName.getId(), both.getId(), byEmail.getId()),
+				port().search(prefix, null, 10).stream().map(User::getId).toList());
+	}
+	
+	@Test
+	void findByPhone_comparaSoloDigitosYSigueLosCambios() {
+		// numero unico, por si el adaptador no revierte lo de otras pruebas
+		String number = String.valueOf(System.nanoTime() % 1_000_000_000L);
+		User owner = user("duenio@example.com", FUTURE, 0);
+		owner.getPhones().add(new Phone(null, number.substring(0, 3) + "-" + number.substring(3), "(9)", "+56"));
+		User other = user("otro-duenio@example.com", FUTURE, 1);
+		port().insertAll(List.of(owner, other));
+		
+		List<User> found = port().findByPhone("56", "9", number);
+		assertEquals(List.of(owner.getId()), found.stream().map(User::getId).toList());
+		assertEquals(1, found.get(0).getPhones().size());
+		assertTrue(port().findByPhone("56", "2", number).isEmpty());
+		
+		port().mergePhones(owner.getId(), List.of(new Phone(null, number + "0", "9", "56")));
+		assertTrue(port().findByPhone("56", "9", number).isEmpty());
+		assertEquals(List.of(owner.getId()),
+				port().findByPhone("56", "9", number + "0").stream().map(User::getId).toList());
+	}
+	
+	@Test
+	void delete_condicionadoALaVersion() {
+		User user = user("borrar@example.com", FUTURE, 2);
+		User other = user("borrar2@example.com", FUTURE, 0);
+		port().insertAll(List.of(user, other));
+		
+		assertEquals(0, port().delete(user.getId(), 5L));
+		assertEquals(1, port().delete(user.getId(), 0L));
+		assertEquals(0, port().delete(user.getId(), null));
+		assertTrue(port().findById(user.getId()).isEmpty());
+		assertFalse(port().existsByEmail("borrar@example.com"));
+		
+		assertEquals(1, port().deleteAll(List.of(other.getId(), UUID.randomUUID())));
+	}
+	
+	private static UserChanges changes(String name) {
+		return new UserChanges(name, null, null, null, LocalDateTime.now());
+	}
+	
+	private static User user(String email, LocalDateTime created, int phones) {
+		List<Phone> list = new ArrayList<>();
+		for (int i = 0; i < phones; i++) {
+			list.add(new Phone(null, "900" + i, "2", "56"));
+		}
+		return new User(UuidV7.generate(), "Contrato", email, "hash", list, created, created, created, "token", true, "USER");
+	}
+}
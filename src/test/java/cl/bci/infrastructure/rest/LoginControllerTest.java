@@ -2,6 +2,9 @@ package cl.bci.infrastructure.rest;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -9,6 +12,7 @@ import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -28,9 +32,15 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import cl.bci.common.dto.ErrorCode;
+import cl.bci.common.exception.CredencialesInvalidasException;
+import cl.bci.common.exception.HashingUnavailableException;
 import cl.bci.common.exception.InvalidJwtAuthenticationException;
+import cl.bci.common.exception.TooManyAttemptsException;
 import cl.bci.common.exception.UserNotFoundException;
+import cl.bci.common.security.LoginThrottle;
 import cl.bci.user.application.service.LoginServicePort;
+import cl.bci.user.domain.AuthTokens;
 import cl.bci.user.domain.User;
 import cl.bci.user.infrastructure.persistence.mapper.UserMapper;
 import cl.bci.user.infrastructure.rest.LoginController;
@@ -59,6 +69,9 @@ class LoginControllerTest {
     @MockitoBean
     private cl.bci.common.security.AuthenticationFilter authenticationFilter;
 
+    @MockitoBean
+    private LoginThrottle loginThrottle;
+
     private static final String LOGIN_URL = "/auth/login";
 
     @Test
@@ -78,7 +91,7 @@ class LoginControllerTest {
     	    when(domainUser.getEmail()).thenReturn(email);
 
     	    when(userMapper.toUser(any())).thenReturn(domainUser);
-    	    when(loginService.login(domainUser)).thenReturn(Optional.of(token));
+    	    when(loginService.login(domainUser)).thenReturn(Optional.of(new AuthTokens(email, token, "refresh-123")));
 
     	    // Act & Assert
     	    mockMvc.perform(post("/auth/login")
@@ -89,12 +102,34 @@ class LoginControllerTest {
     	        .andExpect(status().isOk())
     	        .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
     	        .andExpect(jsonPath("$.email").value(email))
-    	        .andExpect(jsonPath("$.token").value(token));
+    	        .andExpect(jsonPath("$.token").value(token))
+    	        .andExpect(jsonPath("$.refreshToken").value("refresh-123"));
 
     	    // Verificaciones (opcional pero recomendado)
     	    verify(userMapper).toUser(any());
     	    verify(loginService).login(domainUser);
     	    verifyNoMoreInteractions(userMapper, loginService);
+    	    // un login exitoso no descuenta intentos del correo ni del cliente
+    	    verify(loginThrottle).release(email, "127.0.0.1");
+    }
+
+    @Test
+    @DisplayName("POST /auth/login -> 401 con credenciales incorrectas, el intento queda descontado del correo")
+    void login_credenciales_invalidas() throws Exception {
+        when(userMapper.toUser(any())).thenReturn(Mockito.mock(User.class));
+        when(loginService.login(any(User.class)))
+            .thenThrow(new CredencialesInvalidasException("Usuario o contraseña incorrecta", ErrorCode.INCORRECT_CREDENTIALS));
+
+        mockMvc.perform(post(LOGIN_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"email":"valid.user@example.com","password":"Str0ng-Passw0rd!"}
+                """))
+            .andExpect(status().isUnauthorized());
+
+        verify(loginThrottle).acquire("valid.user@example.com", "127.0.0.1");
+        verify(loginThrottle, never()).release(anyString(), anyString());
     }
 
     @Test
@@ -214,4 +249,94 @@ class LoginControllerTest {
     	    verify(loginService).login(any(User.class));
     	    verifyNoMoreInteractions(userMapper, loginService);
     }
+
+    @Test
+    @DisplayName("POST /auth/login -> 429 con Retry-After cuando se agotan los intentos, sin llamar al servicio")
+    void login_too_many_attempts() throws Exception {
+        doThrow(new TooManyAttemptsException("Demasiados intentos de login, reintentar en 12 segundos", 12))
+            .when(loginThrottle).acquire(anyString(), anyString());
+
+        mockMvc.perform(post(LOGIN_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"email":"valid.user@example.com","password":"Str0ng-Passw0rd!"}
+                """))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string("Retry-After", "12"))
+            .andExpect(content().string(containsString("Demasiados intentos")));
+
+        verify(loginThrottle).acquire("valid.user@example.com", "127.0.0.1");
+        verifyNoInteractions(userMapper, loginService);
+    }
+
+    @Test
+    @DisplayName("POST /auth/login -> 503 con Retry-After cuando el pool de hashing esta saturado")
+    void login_hashing_saturado() throws Exception {
+        when(userMapper.toUser(any())).thenReturn(Mockito.mock(User.class));
+        when(loginService.login(any(User.class)))
+            .thenThrow(new HashingUnavailableException("Servicio ocupado, intente nuevamente en unos segundos", null));
+
+        mockMvc.perform(post(LOGIN_URL)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"email":"valid.user@example.com","password":"Str0ng-Passw0rd!"}
+                """))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", "1"))
+            .andExpect(content().string(containsString("Servicio ocupado")));
+    }
+
+    @Test
+    @DisplayName("POST /auth/refresh -> 200 con el nuevo access token y el refresh token rotado")
+    void refresh_ok() throws Exception {
+        when(loginService.refresh("refresh-123"))
+            .thenReturn(new AuthTokens("valid.user@example.com", "jwt-token-456", "refresh-456"));
+
+        mockMvc.perform(post("/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"refreshToken":"refresh-123"}
+                """))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.email").value("valid.user@example.com"))
+            .andExpect(jsonPath("$.token").value("jwt-token-456"))
+            .andExpect(jsonPath("$.refreshToken").value("refresh-456"));
+
+        verify(loginService).refresh("refresh-123");
+        verifyNoInteractions(userMapper, loginThrottle);
+    }
+
+    @Test
+    @DisplayName("POST /auth/refresh -> 401 cuando el refresh token es invalido o reutilizado")
+    void refresh_invalido() throws Exception {
+        when(loginService.refresh(anyString()))
+            .thenThrow(new InvalidJwtAuthenticationException("Refresh token inválido o expirado"));
+
+        mockMvc.perform(post("/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"refreshToken":"usado"}
+                """))
+            .andExpect(status().isUnauthorized())
+            .andExpect(content().string(containsString("Refresh token inválido")));
+    }
+
+    @Test
+    @DisplayName("POST /auth/refresh -> 400 sin refresh token")
+    void refresh_vacio() throws Exception {
+        mockMvc.perform(post("/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON)
+                .content("""
+                    {"refreshToken":""}
+                """))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string(containsString("refreshToken")));
+
+        verifyNoInteractions(loginService);
+    }
 }
@@ -0,0 +1,110 @@
+package cl.bci.infrastructure.rest;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cl.bci.common.dto.ErrorCode;
+import cl.bci.common.exception.CredencialesInvalidasException;
+import cl.bci.common.security.LoginThrottle;
+import cl.bci.user.application.service.LoginServicePort;
+import cl.bci.user.domain.AuthTokens;
+import cl.bci.user.domain.User;
+import cl.bci.user.infrastructure.persistence.mapper.UserMapper;
+import cl.bci.user.infrastructure.rest.LoginController;
+import cl.bci.user.infrastructure.rest.dto.LoginRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Limite de intentos con el LoginThrottle real (capacidades de application.properties: 5 por correo y 20 por cliente).
+ */
+@WebMvcTest(LoginController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@Import({ cl.bci.common.exception.GlobalExceptionHandler.class, LoginThrottle.class })
+class LoginThrottleControllerTest {
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private LoginServicePort loginService;
+
+    @MockitoBean
+    private UserMapper userMapper;
+
+    @MockitoBean
+    private cl.bci.common.security.JwtUtil jwtUtil;
+
+    @MockitoBean
+    private cl.bci.common.security.AuthenticationFilter authenticationFilter;
+
+    @Test
+    @DisplayName("POST /auth/login -> los logins exitosos desde una misma IP no se limitan, los fallidos si")
+    void login_exitososRepetidosNoSeLimitan() throws Exception {
+        when(userMapper.toUser(any())).thenAnswer(inv -> {
+            LoginRequest request = inv.getArgument(0);
+            User user = new User();
+            user.setEmail(request.getEmail());
+            user.setPassword(request.getPassword());
+            return user;
+        });
+        when(loginService.login(argThat(u -> u != null && u.getEmail().startsWith("servicio"))))
+            .thenReturn(Optional.of(new AuthTokens("servicio@example.com", "jwt", "refresh")));
+        when(loginService.login(argThat(u -> u != null && u.getEmail().startsWith("otro"))))
+            .thenThrow(new CredencialesInvalidasException("Usuario o contraseña incorrecta", ErrorCode.INCORRECT_CREDENTIALS));
+
+        // una cuenta de servicio que hace login mas veces que ambos limites en el mismo periodo
+        for (int i = 0; i < 30; i++) {
+            mockMvc.perform(login("servicio@example.com"))
+                .andExpect(status().isOk());
+        }
+
+        // los fallidos desde la misma IP siguen descontando: correos distintos para no llegar al limite por correo
+        for (int i = 0; i < 20; i++) {
+            mockMvc.perform(login("otro" + i + "@example.com"))
+                .andExpect(status().isUnauthorized());
+        }
+        mockMvc.perform(login("otro20@example.com"))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().exists("Retry-After"));
+    }
+
+    private MockHttpServletRequestBuilder login(String email) throws Exception {
+        return post("/auth/login")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_JSON)
+            .content(objectMapper.writeValueAsString(new LoginRequest(email, "Password123")));
+    }
+}
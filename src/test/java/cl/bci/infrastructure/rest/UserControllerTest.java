@@ -1,19 +1,35 @@
 package cl.bci.infrastructure.rest;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,13 +40,23 @@ import org.springframework.http.MediaType;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import cl.bci.common.dto.Versioned;
+import cl.bci.common.exception.PreconditionFailedException;
 import cl.bci.common.security.CustomAccessDeniedHandler;
 import cl.bci.common.security.CustomAuthenticationEntryPoint;
+import cl.bci.common.security.JwtPrincipal;
 import cl.bci.common.security.JwtUtil;
 import cl.bci.common.security.SecurityConfig;
 import cl.bci.user.application.service.UserServicePort;
+import cl.bci.user.domain.UserFilter;
 import cl.bci.user.infrastructure.rest.UserController;
+import cl.bci.user.infrastructure.rest.dto.UserDeleteResponse;
+import cl.bci.user.infrastructure.rest.dto.UserPageResponse;
+import cl.bci.user.infrastructure.rest.dto.UserPatchRequest;
 import cl.bci.user.infrastructure.rest.dto.UserRequest;
 import cl.bci.user.infrastructure.rest.dto.UserResponse;
 
@@ -48,6 +74,9 @@ public class UserControllerTest {
 	
 	@MockitoBean
 	private JwtUtil jwtUtil;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
 
 	private final String email = "juan@gmail.com";
 
@@ -71,8 +100,7 @@ public class UserControllerTest {
 		
 		// 3. Mockear el JWT, para que el filtro de seguridad lo valide
 		final String validToken = "token-valido-para-prueba";
-		when(jwtUtil.validateToken(validToken)).thenReturn(true);
-		when(jwtUtil.extractUsername(validToken)).thenReturn(email);
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal(email, List.of(), null)));
 		
 		// 4. Realizar la llamada con MockMvc, incluyendo la cabecera de autorización
 		mockMvc.perform(post("/users")
@@ -120,19 +148,37 @@ public class UserControllerTest {
 				List.of()
 		);
 		
-		when(jwtUtil.validateToken(validToken)).thenReturn(true);
-		when(jwtUtil.extractUsername(validToken)).thenReturn(username);
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal(username, List.of("ADMIN"), null)));
 		
-		when(jwtUtil.extractRoles(validToken)).thenReturn(List.of("ADMIN"));
-		when(service.findById(id)).thenReturn(response);
+		when(service.findById(id)).thenReturn(new Versioned<>(response, 3));
 		
 		mockMvc.perform(get("/users/{id}", id)
 				.header("Authorization", "Bearer " + validToken))
 				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", "\"3\""))
 				.andExpect(jsonPath("$.id").value(id.toString()));
 	}
 	
 	
+	@Test
+	void getUserById_ifNoneMatch_return304() throws Exception {
+		final UUID id = UUID.randomUUID();
+		final String validToken = "token-de-prueba-valido";
+		
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal("admin@bci.cl", List.of("ADMIN"), null)));
+		when(service.findVersion(id)).thenReturn(3L);
+		
+		mockMvc.perform(get("/users/{id}", id)
+				.header("Authorization", "Bearer " + validToken)
+				.header("If-None-Match", "\"3\""))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", "\"3\""))
+				.andExpect(content().string(""));
+		
+		verify(service, never()).findById(any());
+	}
+	
+	
 	@Test
 	void getAllUsers_return200() throws Exception {
 		UUID id = UUID.randomUUID();
@@ -153,28 +199,137 @@ public class UserControllerTest {
 				)
 		);
 		
-		when(jwtUtil.validateToken(validToken)).thenReturn(true);
-		when(jwtUtil.extractUsername(validToken)).thenReturn(username);
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal(username, List.of("ADMIN"), null)));
 		
-		when(jwtUtil.extractRoles(validToken)).thenReturn(List.of("ADMIN"));
-		when(service.findAll()).thenReturn(userList);
+		when(service.findPage(UserFilter.NONE, 20, null)).thenReturn(new UserPageResponse(userList, "siguiente"));
 		
 		mockMvc.perform(get("/users")
 				.header("Authorization", "Bearer " + validToken))
 				.andExpect(status().isOk())
+				.andExpect(header().string("X-Next-Cursor", "siguiente"))
 				.andExpect(jsonPath("$[0].id").value(id.toString()))
 				.andExpect(jsonPath("$[0].name").value("juan"))
 				.andExpect(jsonPath("$[0].email").value(username));
 	}
 	
 	
+	@Test
+	void getAllUsers_conFiltros_return200() throws Exception {
+		final String validToken = "token-falso";
+		UserFilter filter = new UserFilter(true, "ADMIN", LocalDateTime.of(2025, 1, 6, 0, 0), LocalDateTime.of(2025, 1, 13, 0, 0), null, null);
+		
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal(email, List.of("ADMIN"), null)));
+		when(service.findPage(filter, 10, null)).thenReturn(new UserPageResponse(List.of(), null));
+		
+		mockMvc.perform(get("/users")
+				.param("limit", "10")
+				.param("isactive", "true")
+				.param("role", "admin")
+				.param("createdFrom", "2025-01-06T00:00:00")
+				.param("createdTo", "2025-01-13T00:00:00")
+				.header("Authorization", "Bearer " + validToken))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist("X-Next-Cursor"))
+				.andExpect(jsonPath("$").isEmpty());
+		
+		verify(service).findPage(filter, 10, null);
+	}
+	
+	
+	@Test
+	void getAllUsers_fechaInvalida_return400() throws Exception {
+		final String validToken = "token-falso";
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal(email, List.of("ADMIN"), null)));
+		
+		mockMvc.perform(get("/users")
+				.param("createdFrom", "ayer")
+				.header("Authorization", "Bearer " + validToken))
+				.andExpect(status().isBadRequest());
+		
+		verify(service, never()).findPage(any(), any(Integer.class), any());
+	}
+	
+	
+	@Test
+	void getAllUsers_fechaInvalidaNoRepiteElTextoRecibido() throws Exception {
+		final String validToken = "token-falso";
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal(email, List.of("ADMIN"), null)));
+		
+		mockMvc.perform(get("/users")
+				.param("createdFrom", "<script>alert(1)</script>")
+				.header("Authorization", "Bearer " + validToken))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.mensaje").value("createdFrom: valor inválido, se espera LocalDateTime"));
+	}
+	
+	
+	@Test
+	void emailExists_head200SiEstaRegistradoY404SiNo() throws Exception {
+		final String validToken = "token-falso";
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal(email, List.of("USER"), null)));
+		when(service.emailExists(email)).thenReturn(true);
+		when(service.emailExists("libre@gmail.com")).thenReturn(false);
+		
+		mockMvc.perform(head("/users").param("email", email)
+				.header("Authorization", "Bearer " + validToken))
+				.andExpect(status().isOk())
+				.andExpect(content().string(""));
+		
+		mockMvc.perform(head("/users").param("email", "libre@gmail.com")
+				.header("Authorization", "Bearer " + validToken))
+				.andExpect(status().isNotFound());
+	}
+	
+	
+	@Test
+	void searchUsers_return200() throws Exception {
+		UUID id = UUID.randomUUID();
+		final String validToken = "token-falso";
+		
+		List<UserResponse> userList = List.of(new UserResponse(id, "Juan Perez", email,
+				LocalDateTime.now(), LocalDateTime.now(), LocalDateTime.now(), validToken, true, List.of()));
+		
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal(email, List.of("USER"), null)));
+		when(service.search("Jua", 5, "anterior")).thenReturn(new UserPageResponse(userList, "siguiente"));
+		
+		mockMvc.perform(get("/users/search")
+				.param("q", "Jua")
+				.param("limit", "5")
+				.param("cursor", "anterior")
+				.header("Authorization", "Bearer " + validToken))
+				.andExpect(status().isOk())
+				.andExpect(header().string("X-Next-Cursor", "siguiente"))
+				.andExpect(jsonPath("$[0].id").value(id.toString()))
+				.andExpect(jsonPath("$[0].name").value("Juan Perez"));
+	}
+	
+	
+	@Test
+	void findByPhone_return200() throws Exception {
+		UUID id = UUID.randomUUID();
+		final String validToken = "token-falso";
+		
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal(email, List.of("USER"), null)));
+		when(service.findByPhone("+56", "9", "1234-5678")).thenReturn(List.of(new UserResponse(id, "juan", email,
+				LocalDateTime.now(), LocalDateTime.now(), LocalDateTime.now(), validToken, true, List.of())));
+		
+		mockMvc.perform(get("/users/by-phone")
+				.param("countrycode", "+56")
+				.param("citycode", "9")
+				.param("number", "1234-5678")
+				.header("Authorization", "Bearer " + validToken))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].id").value(id.toString()))
+				.andExpect(jsonPath("$[0].email").value(email));
+	}
+	
+	
 	@Test
 	void updateUser_return200() throws Exception {
 		UUID id = UUID.randomUUID();
 		final String validToken = "token-de-prueba-valido"; // Define el token aquí
 		
-		when(jwtUtil.validateToken(validToken)).thenReturn(true);
-		when(jwtUtil.extractUsername(validToken)).thenReturn("juan@gmail.com");
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal("juan@gmail.com", List.of(), null)));
 		
 		UserResponse response = new UserResponse(
 				id,
@@ -187,7 +342,7 @@ public class UserControllerTest {
 				List.of()
 		);
 		
-		when(service.update(eq(id), any(UserRequest.class))).thenReturn(response);
+		when(service.update(eq(id), any(UserRequest.class), isNull())).thenReturn(new Versioned<>(response, 1));
 		
 		mockMvc.perform(put("/users/{id}", id)
 				.header("Authorization", "Bearer " + validToken)
@@ -213,12 +368,112 @@ public class UserControllerTest {
 	}
 
 	
+	@Test
+	void patchUser_return200() throws Exception {
+		UUID id = UUID.randomUUID();
+		final String validToken = "token-de-prueba-valido";
+		
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal("juan@gmail.com", List.of(), null)));
+		
+		UserResponse response = new UserResponse(id, "juan perez", "juan@gmail.com", LocalDateTime.now(),
+				LocalDateTime.now(), LocalDateTime.now(), validToken, false, List.of());
+		
+		when(service.patch(id, new UserPatchRequest("juan perez", null, false, null, null), null)).thenReturn(new Versioned<>(response, 2));
+		
+		mockMvc.perform(patch("/users/{id}", id)
+				.header("Authorization", "Bearer " + validToken)
+				.contentType("application/merge-patch+json")
+				.content("{\"name\": \"juan perez\", \"isactive\": false}"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("juan perez"))
+				.andExpect(jsonPath("$.isactive").value(false));
+	}
+	
+	
+	@Test
+	void patchUser_badRequest_400_nullOrEmail() throws Exception {
+		UUID id = UUID.randomUUID();
+		final String validToken = "token-de-prueba-valido";
+		
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal("juan@gmail.com", List.of(), null)));
+		
+		mockMvc.perform(patch("/users/{id}", id)
+				.header("Authorization", "Bearer " + validToken)
+				.contentType("application/merge-patch+json")
+				.content("{\"name\": null}"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.mensaje").exists());
+		
+		mockMvc.perform(patch("/users/{id}", id)
+				.header("Authorization", "Bearer " + validToken)
+				.contentType("application/merge-patch+json")
+				.content("{\"email\": \"otro@gmail.com\"}"))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.mensaje").value("El correo no se puede modificar"));
+	}
+	
+	
+	@Test
+	void updateUser_ifMatchDesactualizado_return412() throws Exception {
+		UUID id = UUID.randomUUID();
+		final String validToken = "token-de-prueba-valido";
+		
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal("juan@gmail.com", List.of(), null)));
+		when(service.update(eq(id), any(UserRequest.class), eq(4L)))
+				.thenThrow(new PreconditionFailedException("El usuario fue modificado, la versión de If-Match no es la actual"));
+		
+		mockMvc.perform(put("/users/{id}", id)
+				.header("Authorization", "Bearer " + validToken)
+				.header("If-Match", "\"4\"")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\": \"juan\", \"email\": \"juan@gmail.com\", \"password\": \"mIContraseña123\", "
+						+ "\"phones\": [{\"number\": \"12345678\", \"citycode\": \"1\", \"contrycode\": \"59\"}]}"))
+				.andExpect(status().isPreconditionFailed())
+				.andExpect(jsonPath("$.mensaje").exists());
+	}
+	
+	
+	@Test
+	void deleteUser_ifMatchDebil_return412() throws Exception {
+		UUID id = UUID.randomUUID();
+		final String validToken = "token-de-prueba-valido";
+		
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal("juan@gmail.com", List.of(), null)));
+		
+		// If-Match exige comparacion fuerte, un ETag debil nunca coincide
+		mockMvc.perform(delete("/users/{id}", id)
+				.header("Authorization", "Bearer " + validToken)
+				.header("If-Match", "W/\"4\""))
+				.andExpect(status().isPreconditionFailed());
+		
+		verify(service, never()).delete(any(), any());
+	}
+	
+	
+	@Test
+	void deleteAll_return200() throws Exception {
+		UUID id1 = UUID.randomUUID();
+		UUID id2 = UUID.randomUUID();
+		final String validToken = "token-de-prueba-valido";
+		
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal("admin@bci.cl", List.of("ADMIN"), null)));
+		when(service.deleteAll(List.of(id1, id2))).thenReturn(new UserDeleteResponse(2, 1));
+		
+		mockMvc.perform(delete("/users")
+				.header("Authorization", "Bearer " + validToken)
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[\"" + id1 + "\", \"" + id2 + "\"]"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.requested").value(2))
+				.andExpect(jsonPath("$.deleted").value(1));
+	}
+	
+	
 	@Test
 	void createUser_badRequest_400_invalidEmail() throws Exception {
 		final String validToken = "token-de-prueba-valido";
 		
-		when(jwtUtil.validateToken(validToken)).thenReturn(true);
-		when(jwtUtil.extractUsername(validToken)).thenReturn("admin@bci.cl");
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal("admin@bci.cl", List.of(), null)));
 		
 		mockMvc.perform(post("/users")
 				.header("Authorization", "Bearer " + validToken)
@@ -233,8 +488,7 @@ public class UserControllerTest {
 	void accessDenied_return403Message() throws Exception{
 		UUID id = UUID.randomUUID();
 		
-		when(jwtUtil.validateToken("token-falso")).thenReturn(true);
-		when(jwtUtil.extractUsername("token-falso")).thenReturn("usuario-prueba");
+		when(jwtUtil.verify("token-falso")).thenReturn(Optional.of(new JwtPrincipal("usuario-prueba", List.of(), null)));
 		
 		doThrow(new AccessDeniedException("No Autorizado")).when(service).findById(id);
 		
@@ -244,4 +498,86 @@ public class UserControllerTest {
 				.andExpect(content().contentType(MediaType.APPLICATION_JSON))
 				.andExpect(jsonPath("$.mensaje").value("No tienes acceso a este recurso"));
 	}
+	
+	
+	@Test
+	void export_ndjson_unUsuarioPorLinea() throws Exception {
+		List<UserResponse> users = List.of(exported("ana@mail.com"), exported("luis@mail.com"));
+		streamAll(users);
+		
+		MvcResult result = export(MediaType.APPLICATION_NDJSON_VALUE);
+		String body = mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+				.andReturn().getResponse().getContentAsString();
+		
+		String[] lines = body.split("\n");
+		assertEquals(2, lines.length);
+		assertEquals('\n', body.charAt(body.length() - 1));
+		assertEquals("ana@mail.com", objectMapper.readTree(lines[0]).get("email").asText());
+		assertEquals(users.get(1).id().toString(), objectMapper.readTree(lines[1]).get("id").asText());
+	}
+	
+	
+	@Test
+	void export_porDefecto_arregloJson() throws Exception {
+		streamAll(List.of(exported("ana@mail.com"), exported("luis@mail.com")));
+		
+		MvcResult result = export(null);
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0].email").value("ana@mail.com"))
+				.andExpect(jsonPath("$[1].email").value("luis@mail.com"));
+	}
+	
+	
+	@Test
+	void export_sinUsuarios_arregloVacio() throws Exception {
+		streamAll(List.of());
+		
+		MvcResult result = export(MediaType.APPLICATION_JSON_VALUE);
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(content().string("[]"));
+	}
+	
+	
+	@Test
+	void export_errorDeEscritura_seEntregaElIOExceptionOriginal() throws Exception {
+		IOException broken = new IOException("Conexion cerrada por el cliente");
+		doThrow(new UncheckedIOException(broken)).when(service).streamAll(any());
+		
+		MvcResult result = export(MediaType.APPLICATION_NDJSON_VALUE);
+		
+		// el cuerpo desenvuelve la UncheckedIOException de los consumidores
+		assertEquals(broken, assertInstanceOf(IOException.class, result.getAsyncResult()));
+	}
+	
+	private MvcResult export(String accept) throws Exception {
+		final String validToken = "token-falso";
+		when(jwtUtil.verify(validToken)).thenReturn(Optional.of(new JwtPrincipal(email, List.of("ADMIN"), null)));
+		
+		var builder = get("/users/export").header("Authorization", "Bearer " + validToken);
+		if (accept != null) {
+			builder.accept(accept);
+		}
+		return mockMvc.perform(builder)
+				.andExpect(request().asyncStarted())
+				.andReturn();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void streamAll(List<UserResponse> users) {
+		doAnswer(inv -> {
+			users.forEach(inv.getArgument(0, Consumer.class));
+			return null;
+		}).when(service).streamAll(any());
+	}
+	
+	private static UserResponse exported(String email) {
+		LocalDateTime now = LocalDateTime.of(2025, 1, 1, 10, 0);
+		return new UserResponse(UUID.randomUUID(), "exportado", email, now, now, now, null, true, List.of());
+	}
 }
@@ -0,0 +1,78 @@
+package cl.bci.infrastructure.rest;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import cl.bci.user.application.service.UserImportServicePort;
+import cl.bci.user.infrastructure.rest.UserImportController;
+import cl.bci.user.infrastructure.rest.dto.UserImportResult;
+import cl.bci.user.infrastructure.rest.dto.UserImportResult.Status;
+
+@WebMvcTest(UserImportController.class)
+@AutoConfigureMockMvc(addFilters = false)
+@Import(cl.bci.common.exception.GlobalExceptionHandler.class)
+class UserImportControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private UserImportServicePort importService;
+
+    @MockitoBean
+    private cl.bci.common.security.JwtUtil jwtUtil;
+
+    @MockitoBean
+    private cl.bci.common.security.AuthenticationFilter authenticationFilter;
+
+    @Test
+    @DisplayName("POST /users/batch -> 200 con un resultado NDJSON por registro, bloque a bloque")
+    @SuppressWarnings("unchecked")
+    void importUsers_ok() throws Exception {
+        UUID id = UUID.randomUUID();
+        doAnswer(inv -> {
+            InputStream body = inv.getArgument(0);
+            Consumer<List<UserImportResult>> results = inv.getArgument(1);
+            String ndjson = new String(body.readAllBytes(), StandardCharsets.UTF_8);
+            // el servicio recibe el cuerpo tal cual y entrega dos bloques
+            if (!ndjson.startsWith("{\"name\"")) {
+                throw new IllegalStateException("Cuerpo inesperado: " + ndjson);
+            }
+            results.accept(List.of(UserImportResult.created(1, "ana@mail.com", id)));
+            results.accept(List.of(UserImportResult.failed(2, "ana@mail.com", Status.DUPLICATED, "Correo repetido en la importacion")));
+            return null;
+        }).when(importService).importUsers(any(InputStream.class), any(Consumer.class));
+
+        mockMvc.perform(post("/users/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .content("""
+                    {"name":"ana","email":"ana@mail.com"}
+                    {"name":"ana","email":"ana@mail.com"}
+                    """))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+            .andExpect(content().string(
+                    "{\"line\":1,\"email\":\"ana@mail.com\",\"status\":\"CREATED\",\"id\":\"" + id + "\"}\n"
+                    + "{\"line\":2,\"email\":\"ana@mail.com\",\"status\":\"DUPLICATED\",\"mensaje\":\"Correo repetido en la importacion\"}\n"));
+    }
+}